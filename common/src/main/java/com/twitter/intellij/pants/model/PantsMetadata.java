@@ -0,0 +1,46 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.model;
+
+import com.intellij.openapi.project.Project;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The metadata of a Pants build root that doesn't depend on the imported targets:
+ * its options and the export without targets.
+ * <p>
+ * {@link #warmUp} starts loading both, so that by the first refresh they are done or at least running.
+ * Both are shared through the caches of {@link PantsOptions} and {@link SimpleExportResult},
+ * so later lookups, blocking or not, pick up the same runs instead of starting new ones.
+ */
+public final class PantsMetadata {
+  private final CompletableFuture<PantsOptions> myOptions;
+
+  private PantsMetadata(@NotNull String pantsExecutable) {
+    myOptions = PantsOptions.getPantsOptionsAsync(pantsExecutable);
+    SimpleExportResult.getExportResultAsync(pantsExecutable);
+  }
+
+  /**
+   * Starts loading the metadata of the build root of the project, if it is a Pants project with modules.
+   */
+  @NotNull
+  public static Optional<PantsMetadata> warmUp(@NotNull Project project) {
+    return PantsUtil.findPantsExecutable(project).map(pantsExecutable -> warmUp(pantsExecutable.getPath()));
+  }
+
+  @NotNull
+  public static PantsMetadata warmUp(@NotNull String pantsExecutable) {
+    return new PantsMetadata(pantsExecutable);
+  }
+
+  @NotNull
+  public CompletableFuture<PantsOptions> getOptions() {
+    return myOptions;
+  }
+}
@@ -7,28 +7,54 @@ import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
 import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
+import com.twitter.intellij.pants.util.SingleFlightCache;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 
 public class PantsOptions {
   /**
-   * Cache of PantsOptions mapped from Pants executable files.
+   * Cache of PantsOptions mapped from Pants executable files, backed by {@link PantsOptionsDiskCache}.
    */
-  private static ConcurrentHashMap<File, PantsOptions> optionsCache = new ConcurrentHashMap<>();
+  private static final SingleFlightCache<File, PantsOptions> optionsCache =
+    new SingleFlightCache<>(file -> loadPantsOptions(file.getPath()));
 
   private Map<String, String> options;
 
   public static void clearCache() {
     optionsCache.clear();
+    PantsOptionsDiskCache.clear();
+  }
+
+  /**
+   * Drops the options of the Pants executable in the build root, e.g. after one of its config files changed.
+   * The persisted options are checked against the config files when they are loaded, so they don't need to be dropped.
+   */
+  public static void invalidate(@NotNull File buildRoot) {
+    optionsCache.invalidate(executable -> FileUtil.filesEqual(executable.getAbsoluteFile().getParentFile(), buildRoot));
+  }
+
+  /**
+   * Drops the options of every build root, e.g. after the user's `~/.pants.rc` changed.
+   */
+  public static void invalidateAll() {
+    optionsCache.clear();
+  }
+
+  /**
+   * @return whether a change of the file with this name can change the output of `pants options`.
+   */
+  public static boolean isConfigFileName(@NotNull String fileName) {
+    return PantsOptionsDiskCache.CONFIG_FILE_NAMES.contains(fileName);
   }
 
   public PantsOptions(final String rawOutput) {
@@ -65,19 +91,37 @@ public class PantsOptions {
   }
 
   public static PantsOptions getPantsOptions(@NotNull final String pantsExecutable) {
-    File pantsExecutableFile = new File(pantsExecutable);
-    // note that executing the "pants option" command is neither fast nor simple, which may cause
-    // other threads trying to compute the value for a different pants executable to get blocked
-    // until the ongoing computation finishes
-    return optionsCache.computeIfAbsent(pantsExecutableFile, file -> execPantsOptions(pantsExecutable));
+    // note that executing the "pants option" command is neither fast nor simple,
+    // concurrent callers for the same executable wait for a single run of it
+    return optionsCache.get(new File(pantsExecutable));
+  }
+
+  @NotNull
+  public static CompletableFuture<PantsOptions> getPantsOptionsAsync(@NotNull String pantsExecutable) {
+    return optionsCache.getAsync(new File(pantsExecutable));
+  }
+
+  @NotNull
+  private static PantsOptions loadPantsOptions(@NotNull String pantsExecutable) {
+    final File pantsExecutableFile = new File(pantsExecutable);
+    final Optional<String> cachedOutput = PantsOptionsDiskCache.load(pantsExecutableFile);
+    if (cachedOutput.isPresent()) {
+      return new PantsOptions(cachedOutput.get());
+    }
+    return execPantsOptions(pantsExecutable);
   }
 
   @NotNull
   private static PantsOptions execPantsOptions(@NotNull String pantsExecutable) {
     GeneralCommandLine exportCommandline = PantsUtil.defaultCommandLine(pantsExecutable);
     exportCommandline.addParameters("options", PantsConstants.PANTS_CLI_OPTION_NO_COLORS);
+    // Fingerprinted before the run: a config file edited meanwhile then makes the stored output stale, not current.
+    final Optional<String> cacheKey = PantsOptionsDiskCache.getKey(new File(pantsExecutable));
     try {
       ProcessOutput processOutput = PantsUtil.getCmdOutput(exportCommandline, null);
+      if (processOutput.getExitCode() == 0) {
+        cacheKey.ifPresent(key -> PantsOptionsDiskCache.store(new File(pantsExecutable), key, processOutput.getStdout()));
+      }
       return new PantsOptions(processOutput.getStdout());
     }
     catch (ExecutionException e) {
@@ -0,0 +1,146 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.model;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.SystemProperties;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Keeps the output of `pants options` across IDE restarts, one file per Pants executable under the system directory.
+ * <p>
+ * An entry is only used while the Pants config files it was computed from and the `PANTS_*` environment variables
+ * are unchanged. The Pants version is covered by that, since it is pinned in `pants.ini` or `pants.toml`.
+ */
+final class PantsOptionsDiskCache {
+  private static final Logger LOG = Logger.getInstance(PantsOptionsDiskCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String CACHE_DIRECTORY = "pants-options";
+
+  /**
+   * Files in the build root that affect the output of `pants options`.
+   */
+  static final List<String> CONFIG_FILE_NAMES =
+    Arrays.asList(PantsConstants.PANTS, PantsConstants.PANTS_INI, PantsConstants.PANTS_TOML, ".pants.rc");
+
+  private PantsOptionsDiskCache() {
+  }
+
+  @NotNull
+  static Optional<String> load(@NotNull File pantsExecutable) {
+    final File cacheFile = getCacheFile(pantsExecutable);
+    if (!cacheFile.exists()) {
+      return Optional.empty();
+    }
+    try {
+      final String content = FileUtil.loadFile(cacheFile, StandardCharsets.UTF_8);
+      final int keyEnd = content.indexOf('\n');
+      if (keyEnd < 0 || !content.substring(0, keyEnd).equals(computeKey(pantsExecutable))) {
+        return Optional.empty();
+      }
+      return Optional.of(content.substring(keyEnd + 1));
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to read cached options of " + pantsExecutable, e);
+      FileUtil.delete(cacheFile);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param key the {@link #getKey key} of the config the output was computed from, taken before `pants options` started.
+   */
+  static void store(@NotNull File pantsExecutable, @NotNull String key, @NotNull String optionsOutput) {
+    final File cacheFile = getCacheFile(pantsExecutable);
+    try {
+      final File tempFile = new File(cacheFile.getPath() + ".tmp");
+      FileUtil.writeToFile(tempFile, key + "\n" + optionsOutput);
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to cache options of " + pantsExecutable, e);
+    }
+  }
+
+  static void clear() {
+    FileUtil.delete(getCacheDirectory());
+  }
+
+  @NotNull
+  private static File getCacheDirectory() {
+    return new File(PathManager.getSystemPath(), CACHE_DIRECTORY);
+  }
+
+  @NotNull
+  private static File getCacheFile(@NotNull File pantsExecutable) {
+    return new File(getCacheDirectory(), sha1(pantsExecutable.getAbsolutePath()) + ".txt");
+  }
+
+  /**
+   * @return the fingerprint of everything `pants options` depends on besides the repo's source code,
+   * or empty if it can't be computed, in which case the options are not cached.
+   */
+  @NotNull
+  static Optional<String> getKey(@NotNull File pantsExecutable) {
+    try {
+      return Optional.of(computeKey(pantsExecutable));
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to fingerprint the config of " + pantsExecutable, e);
+      return Optional.empty();
+    }
+  }
+
+  @NotNull
+  private static String computeKey(@NotNull File pantsExecutable) throws IOException {
+    final StringBuilder key = new StringBuilder().append("format=").append(FORMAT_VERSION).append('\n');
+    final File buildRoot = pantsExecutable.getAbsoluteFile().getParentFile();
+    for (String name : CONFIG_FILE_NAMES) {
+      appendFile(key, new File(buildRoot, name));
+    }
+    appendFile(key, new File(SystemProperties.getUserHome(), ".pants.rc"));
+    final Map<String, String> environment = new TreeMap<>(System.getenv());
+    for (Map.Entry<String, String> variable : environment.entrySet()) {
+      if (variable.getKey().startsWith("PANTS_")) {
+        key.append(variable.getKey()).append('=').append(variable.getValue()).append('\n');
+      }
+    }
+    return sha1(key.toString());
+  }
+
+  private static void appendFile(@NotNull StringBuilder key, @NotNull File file) throws IOException {
+    key.append(file.getPath()).append('=');
+    key.append(file.isFile() ? sha1(FileUtil.loadFile(file, StandardCharsets.UTF_8)) : "none");
+    key.append('\n');
+  }
+
+  @NotNull
+  private static String sha1(@NotNull String value) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return StringUtil.toHexString(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
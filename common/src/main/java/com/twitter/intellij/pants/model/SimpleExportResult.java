@@ -15,6 +15,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
+import com.twitter.intellij.pants.util.SingleFlightCache;
 import com.twitter.intellij.pants.util.TempFile;
 import org.jetbrains.annotations.NotNull;
 
@@ -22,7 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This represents information from pants export that is not tied with targets,
@@ -37,7 +38,8 @@ public class SimpleExportResult {
   /**
    * Cache of SimpleExportResult mapped from path of Pants executable files.
    */
-  private static ConcurrentHashMap<File, SimpleExportResult> simpleExportCache = new ConcurrentHashMap<>();
+  private static final SingleFlightCache<File, SimpleExportResult> simpleExportCache =
+    new SingleFlightCache<>(file -> runExport(file.getPath()));
 
   private static final Logger LOG = Logger.getInstance(SimpleExportResult.class);
 
@@ -76,11 +78,16 @@ public class SimpleExportResult {
 
   @NotNull
   public static SimpleExportResult getExportResult(@NotNull String pantsExecutable) {
-    File pantsExecutableFile = new File(pantsExecutable);
-    SimpleExportResult cache = simpleExportCache.get(pantsExecutableFile);
-    if (cache != null) {
-      return cache;
-    }
+    return simpleExportCache.get(new File(pantsExecutable));
+  }
+
+  @NotNull
+  public static CompletableFuture<SimpleExportResult> getExportResultAsync(@NotNull String pantsExecutable) {
+    return simpleExportCache.getAsync(new File(pantsExecutable));
+  }
+
+  @NotNull
+  private static SimpleExportResult runExport(@NotNull String pantsExecutable) {
     final GeneralCommandLine commandline = PantsUtil.defaultCommandLine(pantsExecutable);
     commandline.addParameters("--no-quiet", "export", PantsConstants.PANTS_CLI_OPTION_NO_COLORS);
     try (TempFile tempFile = TempFile.create("pants_export_run", ".out")) {
@@ -90,9 +97,7 @@ public class SimpleExportResult {
       final ProcessOutput processOutput = PantsUtil.getCmdOutput(commandline, null);
 
       if (processOutput.checkSuccess(LOG)) {
-        SimpleExportResult result = parse(FileUtil.loadFile(tempFile.getFile()));
-        simpleExportCache.put(pantsExecutableFile, result);
-        return result;
+        return parse(FileUtil.loadFile(tempFile.getFile()));
       }
     }
     catch (IOException | ExecutionException e) {
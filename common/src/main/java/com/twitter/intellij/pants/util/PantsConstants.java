@@ -32,6 +32,7 @@ public class PantsConstants {
 
   public static final String PANTS_TARGET_MODULE_TYPE =  "pants.module";
 
+  public static final String PANTS_OPTION_PANTS_VERSION = "pants_version";
   public static final String PANTS_OPTION_PANTS_WORKDIR = "pants_workdir";
   public static final String PANTS_OPTION_TEST_JUNIT_STRICT_JVM_VERSION = "test.junit.strict_jvm_version";
   public static final String PANTS_OPTION_ASYNC_CLEAN_ALL = "clean-all.async";
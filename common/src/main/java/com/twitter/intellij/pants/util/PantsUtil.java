@@ -205,7 +205,7 @@ public class PantsUtil {
 
   public static boolean isCompatibleProjectPantsVersion(String projectPath, String minVersion) {
     return PantsUtil.findPantsExecutable(projectPath)
-      .flatMap(exec -> PantsOptions.getPantsOptions(exec.getPath()).get("pants_version"))
+      .flatMap(exec -> PantsOptions.getPantsOptions(exec.getPath()).get(PantsConstants.PANTS_OPTION_PANTS_VERSION))
       .map(version -> PantsUtil.isCompatiblePantsVersion(version, minVersion))
       .orElse(false);
   }
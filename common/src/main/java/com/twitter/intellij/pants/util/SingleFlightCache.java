@@ -0,0 +1,114 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Caches values that are expensive to compute, e.g. the output of a Pants command, so that concurrent callers
+ * asking for the same key share a single computation instead of each starting their own.
+ * <p>
+ * The computation runs on a pooled thread outside of the map, so it neither blocks callers asking for other keys
+ * nor deadlocks when it asks the cache for another key. Failed and cancelled computations are evicted,
+ * so the next caller retries.
+ */
+public final class SingleFlightCache<K, V> {
+  private final ConcurrentHashMap<K, CompletableFuture<V>> myFutures = new ConcurrentHashMap<>();
+  private final Function<K, V> myCompute;
+
+  public SingleFlightCache(@NotNull Function<K, V> compute) {
+    myCompute = compute;
+  }
+
+  /**
+   * @return the pending or completed computation of the value for the key, starting it if there is none.
+   */
+  @NotNull
+  public CompletableFuture<V> getAsync(@NotNull K key) {
+    final CompletableFuture<V> existing = myFutures.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    final CompletableFuture<V> created = new CompletableFuture<>();
+    final CompletableFuture<V> raced = myFutures.putIfAbsent(key, created);
+    if (raced != null) {
+      return raced;
+    }
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      if (created.isDone()) {
+        myFutures.remove(key, created);
+        return;
+      }
+      try {
+        final V value = myCompute.apply(key);
+        if (!created.complete(value)) {
+          // cancelled by a caller in the meantime
+          myFutures.remove(key, created);
+        }
+      }
+      catch (Throwable e) {
+        // Evicted before the callers waiting for it are woken up, so a caller retrying right away starts a new computation.
+        myFutures.remove(key, created);
+        created.completeExceptionally(e);
+      }
+    });
+    return created;
+  }
+
+  /**
+   * Waits for the value. A failure of the computation is rethrown as is if it is unchecked.
+   * If the key is invalidated while waiting, the value is computed again.
+   */
+  @NotNull
+  public V get(@NotNull K key) {
+    while (true) {
+      try {
+        return getAsync(key).join();
+      }
+      catch (CancellationException e) {
+        // invalidated, the pending result was stale
+      }
+      catch (CompletionException e) {
+        throw unwrap(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Drops the values of the matching keys. A pending computation of one of them is cancelled and its result
+   * is discarded: {@link #get} computes the value again, futures returned by {@link #getAsync} are cancelled.
+   */
+  public void invalidate(@NotNull Predicate<K> keys) {
+    myFutures.entrySet().removeIf(entry -> {
+      if (!keys.test(entry.getKey())) {
+        return false;
+      }
+      entry.getValue().cancel(false);
+      return true;
+    });
+  }
+
+  public void clear() {
+    invalidate(key -> true);
+  }
+
+  @NotNull
+  private static RuntimeException unwrap(@NotNull Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new CompletionException(cause);
+  }
+}
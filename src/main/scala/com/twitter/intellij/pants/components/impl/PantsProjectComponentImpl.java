@@ -10,6 +10,7 @@ import com.intellij.execution.RunnerAndConfigurationSettings;
 import com.intellij.ide.impl.NewProjectUtil;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.externalSystem.ExternalSystemManager;
 import com.intellij.openapi.externalSystem.settings.AbstractExternalSystemSettings;
 import com.intellij.openapi.externalSystem.util.ExternalSystemApiUtil;
@@ -27,11 +28,14 @@ import com.intellij.openapi.vcs.changes.ChangeListManagerImpl;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.twitter.intellij.pants.PantsBundle;
 import com.twitter.intellij.pants.execution.PantsMakeBeforeRun;
 import com.twitter.intellij.pants.file.FileChangeTracker;
+import com.twitter.intellij.pants.file.PantsConfigFileListener;
 import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
 import com.twitter.intellij.pants.metrics.PantsMetrics;
+import com.twitter.intellij.pants.model.PantsMetadata;
 import com.twitter.intellij.pants.model.PantsOptions;
 import com.twitter.intellij.pants.service.project.PantsResolver;
 import com.twitter.intellij.pants.settings.PantsProjectSettings;
@@ -48,6 +52,7 @@ import java.util.List;
 import java.util.Optional;
 
 public class PantsProjectComponentImpl implements ProjectManagerListener {
+  private static final Logger LOG = Logger.getInstance(PantsProjectComponentImpl.class);
   @Override
   public void projectClosed(@NotNull Project project) {
     PantsMetrics.report();
@@ -59,6 +64,9 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
     PantsInitImpl.initialize();
     PantsMetrics.initialize();
     if (PantsUtil.isPantsProject(project)) {
+      // start the Pants processes the first refresh and the tasks below need, all at once
+      PantsMetadata.warmUp(project);
+      PantsConfigFileListener.watchUserConfigFile();
       // projectOpened() is called on the dispatch thread, while
       // addPantsProjectIgnoreDirs() calls an external process,
       // so it cannot be run on the dispatch thread.
@@ -181,10 +189,7 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
          */
         private void registerVfsListener(Project project) {
           if (ModuleManager.getInstance(project).getModules().length > 0) {
-            ApplicationManager.getApplication().executeOnPooledThread(() -> {
-              Optional<PantsOptions> pantsOptions = PantsOptions.getPantsOptions(project);
-              pantsOptions.ifPresent(po -> FileChangeTracker.registerProject(project, po));
-            });
+            PantsMetadata.warmUp(project).ifPresent(metadata -> registerFileChangeTracker(project, metadata));
           }
           else {
             project.getMessageBus().connect().subscribe(ProjectTopics.MODULES, new ModuleListener() {
@@ -197,10 +202,7 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
                   .ifPresent(pantsExecutable ->
                              {
                                if (!done) {
-                                 ApplicationManager.getApplication().executeOnPooledThread(() -> {
-                                   PantsOptions pantsOptions = PantsOptions.getPantsOptions(pantsExecutable.getPath());
-                                   FileChangeTracker.registerProject(project, pantsOptions);
-                                 });
+                                 registerFileChangeTracker(project, PantsMetadata.warmUp(pantsExecutable.getPath()));
                                  done = true;
                                }
                              }
@@ -229,6 +231,18 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
     );
   }
 
+  /**
+   * The tracker needs the options, which can't be loaded on the dispatch thread.
+   */
+  private static void registerFileChangeTracker(@NotNull Project project, @NotNull PantsMetadata metadata) {
+    metadata.getOptions()
+      .thenAcceptAsync(options -> FileChangeTracker.registerProject(project, options), AppExecutorUtil.getAppExecutorService())
+      .exceptionally(e -> {
+        LOG.warn("BUILD file changes of " + project.getName() + " are not tracked", e);
+        return null;
+      });
+  }
+
   /**
    * This will add buildroot/.idea, buildroot/.pants.d to Version Control -> Ignored Files.
    * This is currently impossible to test because {@link com.intellij.openapi.externalSystem.test.ExternalSystemTestCase}
@@ -250,26 +264,33 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
     );
   }
 
+  /**
+   * Creating the JDK can wait for `pants export`, and module events come on the dispatch thread,
+   * so it is looked up on a pooled thread and only applied on the dispatch thread.
+   */
   private void applyProjectSdk(Project project) {
     Optional<VirtualFile> pantsExecutable = PantsUtil.findPantsExecutable(project);
     if (!pantsExecutable.isPresent()) {
       return;
     }
 
-    Optional<Sdk> sdk = PantsSdkUtil.getDefaultJavaSdk(pantsExecutable.get().getPath(), project);
-    if (!sdk.isPresent()) {
-      return;
-    }
+    final String pantsExecutablePath = pantsExecutable.get().getPath();
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      Optional<Sdk> sdk = PantsSdkUtil.getDefaultJavaSdk(pantsExecutablePath, project);
+      if (!sdk.isPresent()) {
+        return;
+      }
 
-    ApplicationManager.getApplication().runWriteAction(() -> {
-      NewProjectUtil.applyJdkToProject(project, sdk.get());
-    });
+      ApplicationManager.getApplication().invokeLater(() -> {
+        ApplicationManager.getApplication().runWriteAction(() -> {
+          NewProjectUtil.applyJdkToProject(project, sdk.get());
+        });
 
-    ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      DumbService.getInstance(project).smartInvokeLater(() -> {
-        Runnable fix = MagicConstantInspection.getAttachAnnotationsJarFix(project);
-        Optional.ofNullable(fix).ifPresent(Runnable::run);
-      });
+        DumbService.getInstance(project).smartInvokeLater(() -> {
+          Runnable fix = MagicConstantInspection.getAttachAnnotationsJarFix(project);
+          Optional.ofNullable(fix).ifPresent(Runnable::run);
+        });
+      }, project.getDisposed());
     });
   }
 }
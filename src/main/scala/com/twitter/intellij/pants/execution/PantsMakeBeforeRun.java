@@ -335,11 +335,18 @@ public class PantsMakeBeforeRun extends ExternalSystemBeforeRunTaskProvider {
     }, ModalityState.NON_MODAL);
 
     // If project has not changed since last Compile, return immediately.
-    if (!FileChangeTracker.shouldRecompileThenReset(currentProject, targetAddressesToCompile)) {
+    final Set<String> targetAddressesToRecompile =
+      FileChangeTracker.getTargetsToRecompileThenReset(currentProject, targetAddressesToCompile);
+    if (targetAddressesToRecompile.isEmpty()) {
       PantsExternalMetricsListenerManager.getInstance().logIsPantsNoopCompile(true);
       notify("Compile message", "Already up to date.", NotificationType.INFORMATION);
       return new PantsExecuteTaskResult(true, Optional.of(PantsConstants.NOOP_COMPILE));
     }
+    if (!useCleanAll && !targetAddressesToRecompile.equals(targetAddressesToCompile)) {
+      // Only the targets affected by the files changed since the last compile of the same targets,
+      // so the manifest jar exported by that compile still holds the classpath of all of them.
+      return invokePants(currentProject, targetAddressesToRecompile, Lists.newArrayList("compile"), "Compile");
+    }
     List<String> compileTasks = Lists.newArrayList();
     if (useCleanAll) {
       compileTasks.add("clean-all");
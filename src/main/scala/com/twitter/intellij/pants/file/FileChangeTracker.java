@@ -6,8 +6,13 @@ package com.twitter.intellij.pants.file;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -19,8 +24,10 @@ import com.intellij.openapi.vfs.VirtualFileMoveEvent;
 import com.intellij.openapi.vfs.VirtualFilePropertyEvent;
 import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
 import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
 import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsTargetsUtil;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -31,12 +38,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalTime;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoUnit.MILLIS;
 
@@ -51,26 +60,33 @@ public class FileChangeTracker {
   // so whenever a VirtualFileListener is triggered, we know which Project is affected.
   private static ConcurrentHashMap<VirtualFileListener, Project> listenToProjectMap = new ConcurrentHashMap<>();
 
-  // Maps from Project to <myIsDirty, lastCompileSnapshot>
+  // Maps from Project to <myIsDirty, lastCompileSnapshot, myDirtyTargets>
   private static ConcurrentHashMap<Project, ProjectState> projectStates = new ConcurrentHashMap<>();
 
   /**
    * Keep certain states about the current project.
+   * <p>
+   * A dirty project with a last compile snapshot only has changes in files owned by `myDirtyTargets`,
+   * so only those and the targets depending on them need to be compiled again.
+   * Without a snapshot, everything needs to be compiled.
    */
   private static class ProjectState {
 
     boolean myIsDirty;
     LocalTime myLastModifiedTime;
     Optional<CompileSnapshot> myLastCompileSnapshot;
+    Set<String> myDirtyTargets;
 
     public ProjectState(
       boolean isDirty,
       LocalTime lastModified,
-      Optional<CompileSnapshot> lastCompileSnapshot
+      Optional<CompileSnapshot> lastCompileSnapshot,
+      Set<String> dirtyTargets
     ) {
       myIsDirty = isDirty;
       myLastModifiedTime = lastModified;
       myLastCompileSnapshot = lastCompileSnapshot;
+      myDirtyTargets = Collections.unmodifiableSet(dirtyTargets);
     }
 
     public boolean isDirty() {
@@ -96,6 +112,10 @@ public class FileChangeTracker {
     public void setLastCompileSnapshot(Optional<CompileSnapshot> lastCompileSnapshot) {
       this.myLastCompileSnapshot = lastCompileSnapshot;
     }
+
+    public Set<String> getDirtyTargets() {
+      return myDirtyTargets;
+    }
   }
 
   public FileChangeTracker getInstance() {
@@ -111,13 +131,43 @@ public class FileChangeTracker {
       return;
     }
 
-    markDirty(project);
-
     if (changeType == ChangeType.BUILD) {
+      markDirty(project);
       ProjectRefreshListener.notify(project);
+      return;
+    }
+
+    final List<String> targetAddresses = findOwningModule(project, file)
+      .map(FileChangeTracker::getTargetAddresses)
+      .orElse(Collections.emptyList());
+    if (targetAddresses.isEmpty()) {
+      // Not owned by a target, e.g. a file in the project root module, so any target might be affected.
+      markDirty(project);
+    }
+    else {
+      markDirty(project, targetAddresses);
     }
   }
 
+  @NotNull
+  private static Optional<Module> findOwningModule(@NotNull Project project, @NotNull VirtualFile file) {
+    final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+    // A deleted file is no longer valid, but its directory still is.
+    for (VirtualFile current = file; current != null; current = current.getParent()) {
+      if (current.isValid()) {
+        return Optional.ofNullable(fileIndex.getModuleForFile(current));
+      }
+    }
+    return Optional.empty();
+  }
+
+  @NotNull
+  private static List<String> getTargetAddresses(@NotNull Module module) {
+    return PantsTargetsUtil.getTargetAddressesFromModule(module).stream()
+      .map(PantsTargetAddress::toString)
+      .collect(Collectors.toList());
+  }
+
   enum ChangeType {
     UNRELATED,
     BUILD,
@@ -149,7 +199,23 @@ public class FileChangeTracker {
 
   public static void markDirty(@NotNull Project project) {
     final boolean isDirty = true;
-    projectStates.put(project, new ProjectState(isDirty, LocalTime.now(), Optional.empty()));
+    projectStates.put(project, new ProjectState(isDirty, LocalTime.now(), Optional.empty(), Collections.emptySet()));
+  }
+
+  /**
+   * Mark the targets owning a changed file dirty, keeping the last compile snapshot if there is one.
+   */
+  private static void markDirty(@NotNull Project project, @NotNull List<String> targetAddresses) {
+    final boolean isDirty = true;
+    projectStates.compute(project, (p, state) -> {
+      if (state == null || !state.getLastCompileSnapshot().isPresent()) {
+        // everything is compiled next time anyway
+        return new ProjectState(isDirty, LocalTime.now(), Optional.empty(), Collections.emptySet());
+      }
+      final Set<String> dirtyTargets = new HashSet<>(state.getDirtyTargets());
+      dirtyTargets.addAll(targetAddresses);
+      return new ProjectState(isDirty, LocalTime.now(), state.getLastCompileSnapshot(), dirtyTargets);
+    });
   }
 
   public static void addManifestJarIntoSnapshot(@NotNull Project project) {
@@ -192,6 +258,22 @@ public class FileChangeTracker {
    * the previous one.
    */
   public static boolean shouldRecompileThenReset(@NotNull Project project, @NotNull Set<String> targetAddresses) {
+    return !getTargetsToRecompileThenReset(project, targetAddresses).isEmpty();
+  }
+
+  /**
+   * Determine which of the given targets should be recompiled, see {@link #shouldRecompileThenReset}.
+   * <p>
+   * If the targets and `PantsSettings` are the same as in the last compile and every change since is in files
+   * owned by targets, only the given targets that own a changed file or depend on one are returned.
+   * Compiling other targets doesn't match the snapshot and compiles all of them, so the project is clean afterwards.
+   *
+   * @param project:         project under question.
+   * @param targetAddresses: target addresses for this compile.
+   * @return the targets to recompile, empty if none.
+   */
+  @NotNull
+  public static Set<String> getTargetsToRecompileThenReset(@NotNull Project project, @NotNull Set<String> targetAddresses) {
     PantsSettings settings = PantsSettings.getInstance(project);
 
     ProjectState lastRecordedState = projectStates.get(project);
@@ -202,7 +284,7 @@ public class FileChangeTracker {
     // there is no previous record.
     if (lastRecordedState == null) {
       resetProjectState(project, snapshot);
-      return true;
+      return targetAddresses;
     }
     if (lastRecordedState.isDirty()) {
       long betweenMilliSec = MILLIS.between(lastRecordedState.getLastModifiedTime(), LocalTime.now());
@@ -213,9 +295,7 @@ public class FileChangeTracker {
       // Recompile if project is in incremental mode, because there is no way to keep track of the all changes
       // in the transitive graph.
       settings.isEnableIncrementalImport()
-      // Recompile if project is dirty or there is no previous record.
-      || (lastRecordedState.isDirty())
-      // Recompile if there is no previous record.
+      // Recompile if there is no previous record, e.g. because the project was marked dirty as a whole.
       || !previousSnapshot.isPresent()
       // Recompile if current snapshot is different from previous one.
       // Then reset snapshot.
@@ -224,10 +304,38 @@ public class FileChangeTracker {
       || !isManifestJarValid(project)
     ) {
       resetProjectState(project, snapshot);
-      return true;
+      return targetAddresses;
+    }
+    if (!lastRecordedState.isDirty()) {
+      return Collections.emptySet();
     }
 
-    return false;
+    // Only files of known targets changed since the last compile of the same targets.
+    final Set<String> targetsToRecompile = getAffectedTargets(project, lastRecordedState.getDirtyTargets());
+    targetsToRecompile.retainAll(targetAddresses);
+    resetProjectState(project, snapshot);
+    return targetsToRecompile;
+  }
+
+  /**
+   * @return the targets of the modules owning a dirty target and of all the modules depending on them, transitively.
+   */
+  @NotNull
+  private static Set<String> getAffectedTargets(@NotNull Project project, @NotNull Set<String> dirtyTargets) {
+    return ReadAction.compute(() -> {
+      final Set<Module> affectedModules = new HashSet<>();
+      for (Module module : ModuleManager.getInstance(project).getModules()) {
+        if (!affectedModules.contains(module) && getTargetAddresses(module).stream().anyMatch(dirtyTargets::contains)) {
+          // the module itself and every module with it on its classpath, transitively
+          ModuleUtilCore.collectModulesDependsOn(module, affectedModules);
+        }
+      }
+      final Set<String> result = new HashSet<>();
+      for (Module module : affectedModules) {
+        result.addAll(getTargetAddresses(module));
+      }
+      return result;
+    });
   }
 
   /**
@@ -272,7 +380,7 @@ public class FileChangeTracker {
    */
   private static void resetProjectState(@NotNull Project project, CompileSnapshot snapshot) {
     boolean isDirty = false;
-    projectStates.put(project, new ProjectState(isDirty, LocalTime.now(), Optional.of(snapshot)));
+    projectStates.put(project, new ProjectState(isDirty, LocalTime.now(), Optional.of(snapshot), Collections.emptySet()));
   }
 
   public static void registerProject(@NotNull Project project, final PantsOptions pantsOptions) {
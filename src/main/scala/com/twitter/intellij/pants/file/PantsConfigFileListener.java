@@ -0,0 +1,54 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.file;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.PathUtil;
+import com.intellij.util.SystemProperties;
+import com.twitter.intellij.pants.model.PantsOptions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drops the cached {@link PantsOptions} of a build root as soon as one of its Pants config files changes,
+ * so stale options are never served. A change of the user's `~/.pants.rc` drops the options of every build root.
+ */
+public class PantsConfigFileListener implements BulkFileListener {
+  private static final AtomicBoolean ourUserConfigFileWatched = new AtomicBoolean();
+
+  @Override
+  public void after(@NotNull List<? extends VFileEvent> events) {
+    for (VFileEvent event : events) {
+      final String path = event.getPath();
+      if (PantsOptions.isConfigFileName(PathUtil.getFileName(path))) {
+        final File directory = new File(FileUtil.toSystemDependentName(PathUtil.getParentPath(path)));
+        if (FileUtil.filesEqual(directory, new File(SystemProperties.getUserHome()))) {
+          PantsOptions.invalidateAll();
+        }
+        else {
+          PantsOptions.invalidate(directory);
+        }
+      }
+    }
+  }
+
+  /**
+   * `~/.pants.rc` is outside of every project, so the VFS only reports its changes once it is watched.
+   */
+  public static void watchUserConfigFile() {
+    if (!ourUserConfigFileWatched.compareAndSet(false, true)) {
+      return;
+    }
+    final String path = new File(SystemProperties.getUserHome(), ".pants.rc").getPath();
+    LocalFileSystem.getInstance().addRootToWatch(path, false);
+    ApplicationManager.getApplication().executeOnPooledThread(() -> LocalFileSystem.getInstance().refreshAndFindFileByPath(path));
+  }
+}
@@ -57,5 +57,15 @@ public interface PantsExternalMetricsListener {
    */
   void logIndexingDuration(long milliSeconds) throws Throwable;
 
+  /**
+   * Log the duration of a stage of the project import, e.g. the export or the modifiers.
+   *
+   * @param stage        name of the stage.
+   * @param milliSeconds long number.
+   * @throws Throwable
+   */
+  default void logImportStageDuration(String stage, long milliSeconds) throws Throwable {
+  }
+
   void logEvent(String event);
 }
@@ -97,6 +97,18 @@ public class PantsExternalMetricsListenerManager implements PantsExternalMetrics
     });
   }
 
+  @Override
+  public void logImportStageDuration(String stage, long milliSeconds) {
+    Arrays.stream(EP_NAME.getExtensions()).forEach(s -> {
+      try {
+        s.logImportStageDuration(stage, milliSeconds);
+      }
+      catch (Throwable t) {
+        LOG.info(t);
+      }
+    });
+  }
+
   public void logTestRunner(RunConfiguration runConfiguration) {
     /**
      /**
@@ -13,6 +13,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.util.Consumer;
 import com.intellij.util.PathUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.PantsBundle;
 import com.twitter.intellij.pants.PantsExecutionException;
@@ -30,9 +31,14 @@ import org.jetbrains.annotations.TestOnly;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class PantsCompileOptionsExecutor {
@@ -50,6 +56,19 @@ public class PantsCompileOptionsExecutor {
   public static PantsCompileOptionsExecutor create(
     @NotNull String projectRootPath,
     @Nullable PantsExecutionSettings executionOptions
+  ) throws ExternalSystemException {
+    return create(projectRootPath, executionOptions, executionOptions != null ? executionOptions.incrementalImportDepth() : Optional.empty());
+  }
+
+  /**
+   * @param incrementalImportDepth the depth of the build graph to create modules for,
+   *                               which may be lower than the configured one, see {@link com.twitter.intellij.pants.service.project.ProgressiveImport}.
+   */
+  @NotNull
+  public static PantsCompileOptionsExecutor create(
+    @NotNull String projectRootPath,
+    @Nullable PantsExecutionSettings executionOptions,
+    @NotNull Optional<Integer> incrementalImportDepth
   ) throws ExternalSystemException {
     if (executionOptions == null) {
       throw new ExternalSystemException("No execution options for " + projectRootPath);
@@ -64,7 +83,7 @@ public class PantsCompileOptionsExecutor {
       buildRoot.get(),
       options,
       executionOptions.isLibsWithSourcesAndDocs(),
-      executionOptions.incrementalImportDepth()
+      incrementalImportDepth
     );
   }
 
@@ -96,6 +115,10 @@ public class PantsCompileOptionsExecutor {
     return PantsUtil.getRelativeProjectPath(getBuildRoot(), getProjectPath()).get();
   }
 
+  public boolean isResolveSourcesAndDocsForJars() {
+    return myResolveSourcesAndDocsForJars;
+  }
+
   @NotNull
   public Optional<Integer> getIncrementalImportDepth() {
     return myIncrementalImportDepth;
@@ -143,8 +166,11 @@ public class PantsCompileOptionsExecutor {
     return myOptions;
   }
 
+  /**
+   * @return a reader over the `pants export` output. The caller is responsible for closing it.
+   */
   @NotNull
-  public String loadProjectStructure(
+  public Reader loadProjectStructure(
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
   ) throws IOException, ExecutionException {
@@ -152,12 +178,27 @@ public class PantsCompileOptionsExecutor {
       return loadProjectStructureFromScript(getProjectPath(), statusConsumer, processAdapter);
     }
     else {
-      return loadProjectStructureFromTargets(statusConsumer, processAdapter);
+      return loadProjectStructureFromTargets(getTargetSpecs(), statusConsumer, processAdapter);
     }
   }
 
+  /**
+   * Exports only the given target specs instead of the ones selected for the project,
+   * e.g. to update a previous export after some BUILD files changed.
+   *
+   * @return a reader over the `pants export` output. The caller is responsible for closing it.
+   */
   @NotNull
-  private static String loadProjectStructureFromScript(
+  public Reader loadProjectStructure(
+    @NotNull List<String> targetSpecs,
+    @NotNull Consumer<String> statusConsumer,
+    @Nullable ProcessAdapter processAdapter
+  ) throws IOException, ExecutionException {
+    return loadProjectStructureFromTargets(targetSpecs, statusConsumer, processAdapter);
+  }
+
+  @NotNull
+  private static Reader loadProjectStructureFromScript(
     @NotNull String scriptPath,
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
@@ -167,7 +208,7 @@ public class PantsCompileOptionsExecutor {
     statusConsumer.consume("Executing " + PathUtil.getFileName(scriptPath));
     final ProcessOutput processOutput = PantsUtil.getCmdOutput(commandLine, processAdapter);
     if (processOutput.checkSuccess(LOG)) {
-      return processOutput.getStdout();
+      return new StringReader(processOutput.getStdout());
     }
     else {
       throw new PantsExecutionException("Failed to update the project!", scriptPath, processOutput);
@@ -175,23 +216,62 @@ public class PantsCompileOptionsExecutor {
   }
 
   @NotNull
-  private String loadProjectStructureFromTargets(
+  private Reader loadProjectStructureFromTargets(
+    @NotNull List<String> targetSpecs,
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
   ) throws IOException, ExecutionException {
+    if (PipedExport.isEnabled()) {
+      final File pipe = PipedExport.createPipe();
+      if (pipe != null) {
+        return loadProjectStructureThroughPipe(pipe, targetSpecs, statusConsumer);
+      }
+    }
     final File outputFile = FileUtil.createTempFile("pants_depmap_run", ".out");
-    final GeneralCommandLine command = getPantsExportCommand(outputFile, statusConsumer);
+    final GeneralCommandLine command = getPantsExportCommand(outputFile, targetSpecs, statusConsumer);
     statusConsumer.consume("Resolving dependencies...");
     PantsMetrics.markExportStart();
     final ProcessOutput processOutput = getProcessOutput(command);
     PantsMetrics.markExportEnd();
+    checkExportOutput(command, processOutput);
+    // The export of a big repo can be hundreds of megabytes, so it is streamed rather than loaded into a String.
+    return Files.newBufferedReader(outputFile.toPath(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Pants writes into the pipe while the returned reader is being parsed, see {@link PipedExport}.
+   */
+  @NotNull
+  private Reader loadProjectStructureThroughPipe(
+    @NotNull File pipe,
+    @NotNull List<String> targetSpecs,
+    @NotNull Consumer<String> statusConsumer
+  ) throws IOException, ExecutionException {
+    final GeneralCommandLine command = getPantsExportCommand(pipe, targetSpecs, statusConsumer);
+    statusConsumer.consume("Resolving dependencies...");
+    PantsMetrics.markExportStart();
+    final Process process = command.createProcess();
+    myProcesses.add(process);
+    final CompletableFuture<ProcessOutput> export = CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return PantsUtil.getCmdOutput(process, command.getCommandLineString(), null);
+        }
+        finally {
+          myProcesses.remove(process);
+          PantsMetrics.markExportEnd();
+        }
+      },
+      AppExecutorUtil.getAppExecutorService()
+    );
+    return PipedExport.open(pipe, export, output -> checkExportOutput(command, output));
+  }
+
+  private static void checkExportOutput(@NotNull GeneralCommandLine command, @NotNull ProcessOutput processOutput) {
     if (processOutput.getStdout().contains("no such option")) {
       throw new ExternalSystemException("Pants doesn't have necessary APIs. Please upgrade your pants!");
     }
-    if (processOutput.checkSuccess(LOG)) {
-      return FileUtil.loadFile(outputFile);
-    }
-    else {
+    if (!processOutput.checkSuccess(LOG)) {
       throw new PantsExecutionException("Failed to update the project!", command.getCommandLineString("pants"), processOutput);
     }
   }
@@ -207,8 +287,11 @@ public class PantsCompileOptionsExecutor {
   }
 
   @NotNull
-  private GeneralCommandLine getPantsExportCommand(final File outputFile, @NotNull Consumer<String> statusConsumer)
-    throws IOException {
+  private GeneralCommandLine getPantsExportCommand(
+    final File outputFile,
+    @NotNull List<String> targetSpecs,
+    @NotNull Consumer<String> statusConsumer
+  ) throws IOException {
     final GeneralCommandLine commandLine = PantsUtil.defaultCommandLine(getProjectPath());
 
     // Grab the import stage pants rc file for IntelliJ.
@@ -217,7 +300,7 @@ public class PantsCompileOptionsExecutor {
 
     final File targetSpecsFile = FileUtil.createTempFile("pants_target_specs", ".in");
     try (FileWriter targetSpecsFileWriter = new FileWriter(targetSpecsFile)) {
-      for (String targetSpec : getTargetSpecs()) {
+      for (String targetSpec : targetSpecs) {
         targetSpecsFileWriter.write(targetSpec);
         targetSpecsFileWriter.write('\n');
       }
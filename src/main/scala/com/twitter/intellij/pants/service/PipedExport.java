@@ -0,0 +1,172 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.externalSystem.model.ExternalSystemException;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Lets `pants export` write its output into a named pipe, so the project structure is parsed
+ * while Pants is still serializing it rather than after it exits.
+ * <p>
+ * It is opt-in with `-Dpants.export.pipe=true` and only works where `mkfifo` is available.
+ */
+final class PipedExport {
+  static final String SYSTEM_PROPERTY_PIPED_EXPORT = "pants.export.pipe";
+
+  private PipedExport() {
+  }
+
+  static boolean isEnabled() {
+    return SystemInfo.isUnix && "true".equals(System.getProperty(SYSTEM_PROPERTY_PIPED_EXPORT));
+  }
+
+  /**
+   * @return a new named pipe in its own temporary directory, or null if it couldn't be created.
+   */
+  @Nullable
+  static File createPipe() throws IOException {
+    final File directory = FileUtil.createTempDirectory("pants_depmap_run", null);
+    final File pipe = new File(directory, "export.json");
+    try {
+      final ProcessOutput output = PantsUtil.getCmdOutput(new GeneralCommandLine("mkfifo", pipe.getPath()), null);
+      if (output.getExitCode() == 0) {
+        return pipe;
+      }
+      PantsCompileOptionsExecutor.LOG.warn("Failed to create a named pipe for the export: " + output.getStderr());
+    }
+    catch (ExecutionException e) {
+      PantsCompileOptionsExecutor.LOG.warn("Failed to create a named pipe for the export", e);
+    }
+    FileUtil.delete(directory);
+    return null;
+  }
+
+  /**
+   * @param export      completes with the output of the Pants process writing into the pipe.
+   * @param checkOutput throws if the process failed. It is called once the whole pipe has been read,
+   *                    or when the reader is closed.
+   * @return a reader over everything written into the pipe. Closing it also deletes the pipe.
+   */
+  @NotNull
+  static Reader open(
+    @NotNull File pipe,
+    @NotNull CompletableFuture<ProcessOutput> export,
+    @NotNull Consumer<ProcessOutput> checkOutput
+  ) throws IOException {
+    final CompletableFuture<Reader> reader = CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return Files.newBufferedReader(pipe.toPath(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      },
+      AppExecutorUtil.getAppExecutorService()
+    );
+    CompletableFuture.anyOf(reader, export).exceptionally(e -> null).join();
+    if (!reader.isDone()) {
+      // Opening a pipe blocks until the other end is opened too, which never happens if Pants failed before writing.
+      // The reader still holds the pipe open when this runs, so this open doesn't block.
+      new FileOutputStream(pipe).close();
+    }
+    try {
+      return new ExportReader(reader.join(), pipe, export, checkOutput);
+    }
+    catch (CompletionException e) {
+      FileUtil.delete(pipe.getParentFile());
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static class ExportReader extends FilterReader {
+    private final File myPipe;
+    private final CompletableFuture<ProcessOutput> myExport;
+    private final Consumer<ProcessOutput> myCheckOutput;
+    private boolean myChecked = false;
+
+    private ExportReader(
+      @NotNull Reader in,
+      @NotNull File pipe,
+      @NotNull CompletableFuture<ProcessOutput> export,
+      @NotNull Consumer<ProcessOutput> checkOutput
+    ) {
+      super(in);
+      myPipe = pipe;
+      myExport = export;
+      myCheckOutput = checkOutput;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int result = super.read();
+      if (result == -1) {
+        checkExport();
+      }
+      return result;
+    }
+
+    @Override
+    public int read(@NotNull char[] buffer, int offset, int length) throws IOException {
+      final int result = super.read(buffer, offset, length);
+      if (result == -1) {
+        checkExport();
+      }
+      return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+        checkExport();
+      }
+      finally {
+        FileUtil.delete(myPipe.getParentFile());
+      }
+    }
+
+    /**
+     * Reports a failed export instead of letting the parser fail on truncated json.
+     */
+    private void checkExport() {
+      if (myChecked) {
+        return;
+      }
+      myChecked = true;
+      final ProcessOutput output;
+      try {
+        output = myExport.join();
+      }
+      catch (CompletionException e) {
+        throw new ExternalSystemException(e.getCause());
+      }
+      myCheckOutput.accept(output);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.externalSystem.model.ExternalSystemException;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * A stage of the project resolve. Its duration is reported through
+ * {@link com.twitter.intellij.pants.metrics.PantsExternalMetricsListener#logImportStageDuration}.
+ * <p>
+ * The resolve is a small graph of stages: the JDK, the Pants version and the BUILD file fingerprints only depend on
+ * the build root, so they are {@link #start started} next to the stages that need them and are joined when their
+ * results are needed, while `pants export` is running. The export, the modifiers and the resolvers depend on
+ * each other, so they {@link #begin run} in sequence.
+ */
+final class ImportStage implements AutoCloseable {
+  private static final Logger LOG = Logger.getInstance(ImportStage.class);
+
+  static final String JDK = "jdk";
+  static final String PANTS_VERSION = "pants-version";
+  static final String FINGERPRINT = "fingerprint";
+  static final String EXPORT = "export";
+  static final String MODIFY = "modify";
+  static final String RESOLVE = "resolve";
+
+  private final String myName;
+  private final long myStart = System.currentTimeMillis();
+
+  private ImportStage(@NotNull String name) {
+    myName = name;
+  }
+
+  /**
+   * Times the stage until it is closed.
+   */
+  @NotNull
+  static ImportStage begin(@NotNull String name) {
+    return new ImportStage(name);
+  }
+
+  /**
+   * Runs the stage on a pooled thread, under an indicator of its own that is cancelled with the one of the resolve,
+   * so the stage can still reach the EDT while a modal import is in progress but never starts or stops the resolve's.
+   * Cancelling the returned future cancels the stage.
+   */
+  @NotNull
+  static <T> CompletableFuture<T> start(@NotNull String name, @NotNull Supplier<T> stage) {
+    final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    final ProgressIndicator stageIndicator = indicator != null ? new SensitiveProgressWrapper(indicator) : new EmptyProgressIndicator();
+    final CompletableFuture<T> result = CompletableFuture.supplyAsync(
+      () -> {
+        try (ImportStage ignored = begin(name)) {
+          return ProgressManager.getInstance().runProcess(stage::get, stageIndicator);
+        }
+      },
+      AppExecutorUtil.getAppExecutorService()
+    );
+    result.whenComplete((value, error) -> {
+      if (error instanceof CancellationException) {
+        stageIndicator.cancel();
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Waits for a stage started with {@link #start}, rethrowing its failure.
+   */
+  static <T> T join(@NotNull CompletableFuture<T> stage) {
+    try {
+      return stage.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ExternalSystemException(e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    final long duration = System.currentTimeMillis() - myStart;
+    LOG.debug(String.format("Import stage %s took %d ms", myName, duration));
+    PantsExternalMetricsListenerManager.getInstance().logImportStageDuration(myName, duration);
+  }
+}
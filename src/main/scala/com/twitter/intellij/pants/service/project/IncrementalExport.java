@@ -0,0 +1,253 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import com.intellij.util.PathUtil;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Updates a cached export after some BUILD files changed by exporting only the directories owning them
+ * and the direct dependees of their targets, then merging the result into the cached {@link ProjectInfo}.
+ * <p>
+ * Whenever the update can't be done safely, e.g. a Pants config file changed or too many directories are affected,
+ * no plan is made and the caller falls back to a full export.
+ * <p>
+ * It can be turned off with `-Dpants.export.incremental=false`.
+ */
+public class IncrementalExport {
+  private static final Logger LOG = Logger.getInstance(IncrementalExport.class);
+
+  public static final String SYSTEM_PROPERTY_INCREMENTAL_EXPORT = "pants.export.incremental";
+
+  /**
+   * Past this many specs a full export is about as fast, and far less likely to miss something.
+   */
+  private static final int MAX_TARGET_SPECS = 200;
+
+  private final ProjectInfo myProjectInfo;
+  private final Set<String> myStaleTargets;
+  private final List<String> myTargetSpecs;
+  private final List<String> mySelectedSpecs;
+
+  private IncrementalExport(
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> staleTargets,
+    @NotNull List<String> targetSpecs,
+    @NotNull List<String> selectedSpecs
+  ) {
+    myProjectInfo = projectInfo;
+    myStaleTargets = staleTargets;
+    myTargetSpecs = targetSpecs;
+    mySelectedSpecs = selectedSpecs;
+  }
+
+  /**
+   * @param buildRoot    build root the changed files are relative to.
+   * @param projectInfo  the previous export, which is updated in place by {@link #run}.
+   * @param changedFiles BUILD and config files changed since the previous export, relative to the build root.
+   * @param selectedSpecs the target specs of the import.
+   * @return the plan to update the previous export, or empty if a full export is needed.
+   */
+  @NotNull
+  public static Optional<IncrementalExport> plan(
+    @NotNull File buildRoot,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> changedFiles,
+    @NotNull List<String> selectedSpecs
+  ) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    final Set<String> changedDirectories = new HashSet<>();
+    for (String changedFile : changedFiles) {
+      if (ProjectInfoCache.isConfigFile(changedFile)) {
+        LOG.debug("Pants config " + changedFile + " changed, a full export is needed");
+        return Optional.empty();
+      }
+      changedDirectories.add(PathUtil.getParentPath(changedFile));
+    }
+
+    final Set<String> ownedDirectories = projectInfo.getTargets().keySet().stream()
+      .map(IncrementalExport::getSpecPath)
+      .collect(Collectors.toSet());
+    final Set<String> targetSpecs = new TreeSet<>();
+    for (String directory : changedDirectories) {
+      // A directory whose last BUILD file was deleted can't be exported, its targets are just dropped.
+      if (!hasBuildFile(new File(buildRoot, directory))) {
+        continue;
+      }
+      if (ownedDirectories.contains(directory)) {
+        targetSpecs.add(getDirectorySpec(directory));
+        continue;
+      }
+      // BUILD files are tracked in the whole build root, but a directory outside the import is none of its business.
+      for (String selectedSpec : selectedSpecs) {
+        if (selectsDirectory(selectedSpec, directory)) {
+          targetSpecs.add(isAddressSpec(selectedSpec) ? selectedSpec : getDirectorySpec(directory));
+        }
+      }
+    }
+
+    final Set<String> staleTargets = new HashSet<>();
+    for (Map.Entry<String, TargetInfo> entry : projectInfo.getTargets().entrySet()) {
+      final String targetName = entry.getKey();
+      if (changedDirectories.contains(getSpecPath(targetName))) {
+        staleTargets.add(targetName);
+        continue;
+      }
+      final boolean isDirectDependee = entry.getValue().getTargets().stream()
+        .anyMatch(dependency -> changedDirectories.contains(getSpecPath(dependency)));
+      if (!isDirectDependee) {
+        continue;
+      }
+      if (isSynthetic(entry.getValue())) {
+        LOG.debug("Synthetic target " + targetName + " depends on a changed BUILD file, a full export is needed");
+        return Optional.empty();
+      }
+      targetSpecs.add(targetName);
+    }
+
+    // No specs at all is fine: the changes only dropped targets, or are outside the import.
+    if (targetSpecs.size() > MAX_TARGET_SPECS) {
+      return Optional.empty();
+    }
+    return Optional.of(new IncrementalExport(projectInfo, staleTargets, new ArrayList<>(targetSpecs), selectedSpecs));
+  }
+
+  @NotNull
+  public List<String> getTargetSpecs() {
+    return Collections.unmodifiableList(myTargetSpecs);
+  }
+
+  /**
+   * Exports the planned specs and merges them into the previous export.
+   *
+   * @return the updated previous export.
+   */
+  @NotNull
+  public ProjectInfo run(
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull Consumer<String> statusConsumer,
+    @Nullable ProcessAdapter processAdapter
+  ) throws IOException, ExecutionException {
+    if (myTargetSpecs.isEmpty()) {
+      myProjectInfo.update(new ProjectInfo(), myStaleTargets, this::isSelected);
+      return myProjectInfo;
+    }
+    final ProjectInfo partial;
+    try (Reader output = executor.loadProjectStructure(myTargetSpecs, statusConsumer, processAdapter)) {
+      partial = PantsResolver.parseProjectInfoFromJSON(output);
+    }
+    myProjectInfo.update(partial, myStaleTargets, this::isSelected);
+    return myProjectInfo;
+  }
+
+  /**
+   * @return whether the target is selected by the target specs of the import, i.e. is one of its target roots.
+   */
+  boolean isSelected(@NotNull String targetAddress) {
+    return mySelectedSpecs.stream().anyMatch(spec -> selectsTarget(spec, targetAddress));
+  }
+
+  private static boolean isEnabled() {
+    return !"false".equals(System.getProperty(SYSTEM_PROPERTY_INCREMENTAL_EXPORT));
+  }
+
+  private static boolean hasBuildFile(@NotNull File directory) {
+    final File[] files = directory.listFiles();
+    if (files == null) {
+      return false;
+    }
+    for (File file : files) {
+      if (file.isFile() && PantsUtil.isBUILDFileName(file.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSynthetic(@NotNull TargetInfo targetInfo) {
+    return targetInfo.getAddressInfos().stream().anyMatch(TargetAddressInfo::isSynthetic);
+  }
+
+  /**
+   * @return the directory spec that selects every target defined in the directory, e.g. `src/java/foo:`.
+   */
+  @NotNull
+  static String getDirectorySpec(@NotNull String directory) {
+    return directory.isEmpty() ? "//:" : directory + ":";
+  }
+
+  /**
+   * @return whether the spec selects the target, e.g. `src/java::`, `src/java/foo:` and `src/java/foo:bar`
+   * all select `src/java/foo:bar`.
+   */
+  static boolean selectsTarget(@NotNull String spec, @NotNull String targetAddress) {
+    if (isAddressSpec(spec)) {
+      return getSpecPath(spec).equals(getSpecPath(targetAddress)) && getTargetName(spec).equals(getTargetName(targetAddress));
+    }
+    return selectsDirectory(spec, getSpecPath(targetAddress));
+  }
+
+  /**
+   * @return whether the spec selects any target defined in the directory.
+   */
+  static boolean selectsDirectory(@NotNull String spec, @NotNull String directory) {
+    // `src/java::` has the spec path of `src/java:`
+    final String specPath = getSpecPath(spec.endsWith("::") ? spec.substring(0, spec.length() - 1) : spec);
+    if (spec.endsWith("::")) {
+      return specPath.isEmpty() || directory.equals(specPath) || directory.startsWith(specPath + "/");
+    }
+    return directory.equals(specPath);
+  }
+
+  /**
+   * @return whether the spec is the address of a single target, e.g. `src/java/foo:bar` or `src/java/foo`.
+   */
+  private static boolean isAddressSpec(@NotNull String spec) {
+    return !spec.endsWith(":");
+  }
+
+  /**
+   * @return the name part of a target address, e.g. `bar` for `src/java/foo:bar` and `foo` for `src/java/foo`.
+   */
+  @NotNull
+  private static String getTargetName(@NotNull String targetAddress) {
+    final int colonIndex = targetAddress.lastIndexOf(':');
+    return colonIndex < 0 ? PathUtil.getFileName(targetAddress) : targetAddress.substring(colonIndex + 1);
+  }
+
+  /**
+   * @return the directory part of a target address, e.g. `src/java/foo` for `src/java/foo:bar`.
+   */
+  @NotNull
+  static String getSpecPath(@NotNull String targetAddress) {
+    final int colonIndex = targetAddress.lastIndexOf(':');
+    final String specPath = colonIndex < 0 ? targetAddress : targetAddress.substring(0, colonIndex);
+    return specPath.startsWith("//") ? specPath.substring(2) : specPath;
+  }
+}
@@ -3,7 +3,8 @@
 
 package com.twitter.intellij.pants.service.project;
 
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.ide.util.PropertiesComponent;
@@ -28,6 +29,9 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -45,17 +49,43 @@ public class PantsResolver {
   protected static final Logger LOG = Logger.getInstance(PantsResolver.class);
   protected final PantsCompileOptionsExecutor myExecutor;
   protected ProjectInfo myProjectInfo = null;
+  private Optional<ProjectInfoCache> myCache = Optional.empty();
+  // the model of a previous resolve, which the modifiers already ran on
+  private Optional<ProjectInfoCache.ResolvedModel> myResolvedModel = Optional.empty();
 
   public PantsResolver(@NotNull PantsCompileOptionsExecutor executor) {
     myExecutor = executor;
   }
 
-  public static ProjectInfo parseProjectInfoFromJSON(@NotNull String data) throws JsonSyntaxException {
-    final int jsonStart = data.indexOf("\n{");
-    if (jsonStart > 0) {
-      data = data.substring(jsonStart + 1);
+  public static ProjectInfo parseProjectInfoFromJSON(@NotNull String data) throws JsonParseException {
+    try {
+      return parseProjectInfoFromJSON(new StringReader(data));
+    }
+    catch (IOException e) {
+      throw new JsonIOException(e);
     }
-    return ProjectInfo.fromJson(data);
+  }
+
+  public static ProjectInfo parseProjectInfoFromJSON(@NotNull Reader data) throws JsonParseException, IOException {
+    return ProjectInfo.fromJson(skipToJsonStart(data));
+  }
+
+  /**
+   * Pants might print some log lines before the actual json, so the data is skipped up to the first line starting with '{'.
+   */
+  @NotNull
+  private static Reader skipToJsonStart(@NotNull Reader data) throws IOException {
+    final PushbackReader reader = new PushbackReader(data);
+    boolean isLineStart = true;
+    int c;
+    while ((c = reader.read()) != -1) {
+      if (isLineStart && c == '{') {
+        reader.unread(c);
+        return reader;
+      }
+      isLineStart = c == '\n';
+    }
+    throw new ExternalSystemException("Not output from pants");
   }
 
   @Nullable
@@ -68,14 +98,13 @@ public class PantsResolver {
     myProjectInfo = projectInfo;
   }
 
-  private void parse(final String output) {
+  private void parse(@NotNull Reader output) throws IOException {
     myProjectInfo = null;
-    if (output.isEmpty()) throw new ExternalSystemException("Not output from pants");
     try {
       myProjectInfo = parseProjectInfoFromJSON(output);
     }
-    catch (JsonSyntaxException e) {
-      LOG.warn("Can't parse output\n" + output, e);
+    catch (JsonParseException e) {
+      LOG.warn("Can't parse output", e);
       throw new ExternalSystemException("Can't parse project structure!");
     }
   }
@@ -84,31 +113,101 @@ public class PantsResolver {
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
   ) {
-    try {
-      String pantsExportResult = myExecutor.loadProjectStructure(statusConsumer, processAdapter);
-      parse(pantsExportResult);
+    if (myExecutor.getOptions().incrementalImportDepth().isPresent()) {
+      // needed by the build graph, so `pants export` without targets runs next to the actual export
+      PantsUtil.findPantsExecutable(myExecutor.getProjectPath())
+        .ifPresent(pantsExecutable -> SimpleExportResult.getExportResultAsync(pantsExecutable.getPath()));
     }
-    catch (ExecutionException | IOException e) {
-      throw new ExternalSystemException(e);
+    final Optional<ProjectInfoCache> cache = ProjectInfoCache.create(myExecutor);
+    myCache = cache;
+    myResolvedModel = cache.flatMap(ProjectInfoCache::loadResolvedModel);
+    if (myResolvedModel.isPresent()) {
+      statusConsumer.consume("No BUILD file changes, reusing the last resolved project...");
+      myProjectInfo = myResolvedModel.get().getProjectInfo();
+      return;
     }
+    final Optional<ProjectInfoCache.Snapshot> snapshot = cache.flatMap(ProjectInfoCache::load);
+    if (snapshot.isPresent() && snapshot.get().isUpToDate()) {
+      statusConsumer.consume("No BUILD file changes, reusing the last export...");
+      myProjectInfo = snapshot.get().getProjectInfo();
+      return;
+    }
+
+    final Optional<IncrementalExport> incrementalExport = snapshot.flatMap(
+      s -> IncrementalExport.plan(
+        myExecutor.getBuildRoot(),
+        s.getProjectInfo(),
+        s.getChangedFiles(),
+        myExecutor.getOptions().getSelectedTargetSpecs()
+      )
+    );
+    if (incrementalExport.isPresent()) {
+      try (ImportStage ignored = ImportStage.begin(ImportStage.EXPORT)) {
+        statusConsumer.consume("Exporting targets of changed BUILD files...");
+        myProjectInfo = incrementalExport.get().run(myExecutor, statusConsumer, processAdapter);
+        cache.ifPresent(c -> c.store(myProjectInfo));
+        return;
+      }
+      catch (ExecutionException | IOException | JsonParseException | ExternalSystemException e) {
+        LOG.warn("Incremental export of " + incrementalExport.get().getTargetSpecs() + " failed, doing a full export", e);
+      }
+    }
+
+    final Optional<ShardedExport> shardedExport = ShardedExport.plan(myExecutor);
+    if (shardedExport.isPresent()) {
+      statusConsumer.consume(String.format("Exporting targets in %d shards...", shardedExport.get().getShards().size()));
+      try (ImportStage ignored = ImportStage.begin(ImportStage.EXPORT)) {
+        myProjectInfo = shardedExport.get().run(myExecutor, statusConsumer, processAdapter);
+      }
+      catch (JsonParseException e) {
+        LOG.warn("Can't parse output", e);
+        throw new ExternalSystemException("Can't parse project structure!");
+      }
+      catch (ExecutionException | IOException e) {
+        throw new ExternalSystemException(e);
+      }
+    }
+    else {
+      try (
+        ImportStage ignored = ImportStage.begin(ImportStage.EXPORT);
+        Reader pantsExportResult = myExecutor.loadProjectStructure(statusConsumer, processAdapter)
+      ) {
+        parse(pantsExportResult);
+      }
+      catch (ExecutionException | IOException e) {
+        throw new ExternalSystemException(e);
+      }
+    }
+    // Store before the modifiers mutate the model.
+    cache.ifPresent(c -> c.store(myProjectInfo));
   }
 
   public void addInfoTo(@NotNull DataNode<ProjectData> projectInfoDataNode) {
     if (myProjectInfo == null) return;
 
 
-    LOG.debug("Amount of targets before modifiers: " + myProjectInfo.getTargets().size());
-    for (PantsProjectInfoModifierExtension modifier : PantsProjectInfoModifierExtension.EP_NAME.getExtensions()) {
-      modifier.modify(myProjectInfo, myExecutor, LOG);
+    if (!myResolvedModel.isPresent()) {
+      LOG.debug("Amount of targets before modifiers: " + myProjectInfo.getTargets().size());
+      try (ImportStage ignored = ImportStage.begin(ImportStage.MODIFY)) {
+        for (PantsProjectInfoModifierExtension modifier : PantsProjectInfoModifierExtension.EP_NAME.getExtensions()) {
+          modifier.modify(myProjectInfo, myExecutor, LOG);
+        }
+      }
+      LOG.debug("Amount of targets after modifiers: " + myProjectInfo.getTargets().size());
     }
-    LOG.debug("Amount of targets after modifiers: " + myProjectInfo.getTargets().size());
 
-    Optional<BuildGraph> buildGraph = constructBuildGraph(projectInfoDataNode);
+    try (ImportStage ignored = ImportStage.begin(ImportStage.RESOLVE)) {
+      Optional<BuildGraph> buildGraph = constructBuildGraph(projectInfoDataNode);
+      if (!myResolvedModel.isPresent() || buildGraph.isPresent() != myResolvedModel.get().getBuildGraph().isPresent()) {
+        final Optional<BuildGraph> resolvedBuildGraph = buildGraph;
+        myCache.ifPresent(cache -> cache.storeResolvedModel(myProjectInfo, resolvedBuildGraph));
+      }
 
-    PropertiesComponent.getInstance().setValues(PantsConstants.PANTS_AVAILABLE_TARGETS_KEY, myProjectInfo.getAvailableTargetTypes());
-    final Map<String, DataNode<ModuleData>> modules = new HashMap<>();
-    for (PantsResolverExtension resolver : PantsResolverExtension.EP_NAME.getExtensions()) {
-      resolver.resolve(myProjectInfo, myExecutor, projectInfoDataNode, modules, buildGraph);
+      PropertiesComponent.getInstance().setValues(PantsConstants.PANTS_AVAILABLE_TARGETS_KEY, myProjectInfo.getAvailableTargetTypes());
+      final Map<String, DataNode<ModuleData>> modules = new HashMap<>();
+      for (PantsResolverExtension resolver : PantsResolverExtension.EP_NAME.getExtensions()) {
+        resolver.resolve(myProjectInfo, myExecutor, projectInfoDataNode, modules, buildGraph);
+      }
     }
     if (LOG.isDebugEnabled()) {
       final int amountOfModules = PantsUtil.findChildren(projectInfoDataNode, ProjectKeys.MODULE).size();
@@ -124,7 +223,8 @@ public class PantsResolver {
       if (PantsUtil.versionCompare(result.getVersion(), "1.0.9") < 0) {
         throw new PantsException(PantsBundle.message("pants.resolve.incremental.import.unsupported"));
       }
-      buildGraph = Optional.of(new BuildGraph(myProjectInfo.getTargets()));
+      final Optional<BuildGraph> resolvedBuildGraph = myResolvedModel.flatMap(ProjectInfoCache.ResolvedModel::getBuildGraph);
+      buildGraph = resolvedBuildGraph.isPresent() ? resolvedBuildGraph : Optional.of(new BuildGraph(myProjectInfo.getTargets()));
     }
     else {
       buildGraph = Optional.empty();
@@ -61,6 +61,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -111,7 +112,10 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     }
 
     checkForDifferentPantsExecutables(id, projectPath);
-    final PantsCompileOptionsExecutor executor = PantsCompileOptionsExecutor.create(projectPath, settings);
+    final Optional<Integer> configuredDepth = settings != null ? settings.incrementalImportDepth() : Optional.empty();
+    final Optional<Integer> depthToResolve =
+      isPreviewMode ? configuredDepth : ProgressiveImport.getDepthToResolve(projectPath, configuredDepth);
+    final PantsCompileOptionsExecutor executor = PantsCompileOptionsExecutor.create(projectPath, settings, depthToResolve);
     task2executor.put(id, executor);
 
     final DataNode<ProjectData> projectDataNode =
@@ -126,6 +130,7 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     // Removing the existing modules right before returning to minimize the time user observes
     // that the old modules are gone.
     Optional.ofNullable(id.findProject()).ifPresent(p -> clearPantsModules(p, projectPath, projectDataNode));
+    ProgressiveImport.scheduleNextLevels(id.findProject(), projectPath, depthToResolve, configuredDepth);
     return projectDataNode;
   }
 
@@ -207,14 +212,24 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     );
     final DataNode<ProjectData> projectDataNode = new DataNode<>(ProjectKeys.PROJECT, projectData, null);
 
-    PantsUtil.findPantsExecutable(executor.getProjectPath())
-      .flatMap(file -> PantsSdkUtil.getDefaultJavaSdk(file.getPath(), null))
-      .map(sdk -> new ProjectSdkData(sdk.getName()))
-      .ifPresent(sdk -> projectDataNode.createChild(ProjectSdkData.KEY, sdk));
+    // The JDK only depends on the build root, so it is looked up while the project is exported.
+    final CompletableFuture<Optional<ProjectSdkData>> projectSdk = ImportStage.start(
+      ImportStage.JDK,
+      () -> PantsUtil.findPantsExecutable(executor.getProjectPath())
+        .flatMap(file -> PantsSdkUtil.getDefaultJavaSdk(file.getPath(), null))
+        .map(sdk -> new ProjectSdkData(sdk.getName()))
+    );
 
     if (!isPreviewMode) {
       PantsExternalMetricsListenerManager.getInstance().logIsIncrementalImport(settings.incrementalImportDepth().isPresent());
-      resolveUsingPantsGoal(id, executor, listener, projectDataNode);
+      try {
+        resolveUsingPantsGoal(id, executor, listener, projectDataNode);
+      }
+      catch (RuntimeException | Error e) {
+        // nobody is going to join the JDK lookup, stop its `pants export`
+        projectSdk.cancel(true);
+        throw e;
+      }
 
       if (!containsContentRoot(projectDataNode, executor.getProjectDir())) {
         // Add a module with content root as import project directory path.
@@ -237,6 +252,7 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
       }
     }
 
+    ImportStage.join(projectSdk).ifPresent(sdk -> projectDataNode.createChild(ProjectSdkData.KEY, sdk));
     return projectDataNode;
   }
 
@@ -0,0 +1,137 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.externalSystem.importing.ImportSpecBuilder;
+import com.intellij.openapi.externalSystem.service.execution.ProgressExecutionMode;
+import com.intellij.openapi.externalSystem.service.project.manage.ProjectDataImportListener;
+import com.intellij.openapi.externalSystem.util.ExternalSystemUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * With incremental import, imports the modules of the first level of the build graph right away,
+ * so editing can start, then deepens the import in the background until the configured depth is reached.
+ * Every background pass is a regular refresh that includes twice as many levels as the previous one.
+ * As long as no BUILD file changed, it reuses the cached export instead of running Pants again.
+ * <p>
+ * It is opt-in with `-Dpants.import.progressive=true`.
+ */
+public final class ProgressiveImport {
+  private static final Logger LOG = Logger.getInstance(ProgressiveImport.class);
+
+  public static final String SYSTEM_PROPERTY_PROGRESSIVE_IMPORT = "pants.import.progressive";
+
+  private static final int FIRST_LEVEL = 1;
+
+  // project path to the depth its next resolve should import, while a progressive import is in progress
+  private static final Map<String, Integer> ourPendingDepths = new ConcurrentHashMap<>();
+  // project path to the connection waiting for the data of its current resolve to be imported
+  private static final Map<String, MessageBusConnection> ourConnections = new ConcurrentHashMap<>();
+
+  private ProgressiveImport() {
+  }
+
+  /**
+   * @return the depth the current resolve of the project should import.
+   */
+  @NotNull
+  public static Optional<Integer> getDepthToResolve(@NotNull String projectPath, @NotNull Optional<Integer> configuredDepth) {
+    if (!configuredDepth.isPresent() || !isEnabled()) {
+      ourPendingDepths.remove(projectPath);
+      return configuredDepth;
+    }
+    final Integer pendingDepth = ourPendingDepths.remove(projectPath);
+    final int depth = pendingDepth != null ? pendingDepth : FIRST_LEVEL;
+    return Optional.of(Math.min(depth, configuredDepth.get()));
+  }
+
+  /**
+   * Refreshes the project with more levels once the data of the current resolve has been imported.
+   */
+  public static void scheduleNextLevels(
+    @Nullable Project project,
+    @NotNull String projectPath,
+    @NotNull Optional<Integer> resolvedDepth,
+    @NotNull Optional<Integer> configuredDepth
+  ) {
+    if (project == null || !resolvedDepth.isPresent() || !configuredDepth.isPresent() || !isEnabled()) {
+      return;
+    }
+    if (resolvedDepth.get() >= configuredDepth.get()) {
+      return;
+    }
+    final int nextDepth = getNextDepth(resolvedDepth.get(), configuredDepth.get());
+    ourPendingDepths.put(projectPath, nextDepth);
+
+    // Disposed with the project, in case its data is never imported.
+    final MessageBusConnection connection = project.getMessageBus().connect(project);
+    final MessageBusConnection previous = ourConnections.put(projectPath, connection);
+    if (previous != null) {
+      previous.disconnect();
+    }
+    connection.subscribe(
+      ProjectDataImportListener.TOPIC,
+      new ProjectDataImportListener() {
+        @Override
+        public void onImportFinished(@Nullable String importedProjectPath) {
+          if (!isFor(importedProjectPath)) {
+            return;
+          }
+          disconnect();
+          if (project.isDisposed() || !ourPendingDepths.containsKey(projectPath)) {
+            return;
+          }
+          LOG.info(String.format("Importing %s up to level %d in the background", projectPath, nextDepth));
+          ApplicationManager.getApplication().invokeLater(
+            () -> ExternalSystemUtil.refreshProject(
+              projectPath,
+              new ImportSpecBuilder(project, PantsConstants.SYSTEM_ID).use(ProgressExecutionMode.IN_BACKGROUND_ASYNC)
+            ),
+            project.getDisposed()
+          );
+        }
+
+        /**
+         * The import stops at the depth that was imported last, the next refresh starts over from the first level.
+         */
+        @Override
+        public void onImportFailed(@Nullable String importedProjectPath) {
+          if (!isFor(importedProjectPath)) {
+            return;
+          }
+          disconnect();
+          ourPendingDepths.remove(projectPath);
+        }
+
+        private boolean isFor(@Nullable String importedProjectPath) {
+          return importedProjectPath == null || FileUtil.pathsEqual(importedProjectPath, projectPath);
+        }
+
+        private void disconnect() {
+          ourConnections.remove(projectPath, connection);
+          connection.disconnect();
+        }
+      }
+    );
+  }
+
+  static int getNextDepth(int resolvedDepth, int configuredDepth) {
+    return Math.min(Math.max(resolvedDepth * 2, resolvedDepth + 1), configuredDepth);
+  }
+
+  private static boolean isEnabled() {
+    return "true".equals(System.getProperty(SYSTEM_PROPERTY_PROGRESSIVE_IMPORT));
+  }
+}
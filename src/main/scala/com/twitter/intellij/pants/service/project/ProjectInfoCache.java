@@ -0,0 +1,381 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.PathUtil;
+import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoSerializer;
+import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of the parsed `pants export` output.
+ * <p>
+ * The cache file for an import lives under `.idea/pants-projects/export-cache` of the build root and is reused
+ * when the selected target specs, the Pants version and the import options are unchanged.
+ * Along with the export it records the size and modification time of every BUILD file and Pants config file,
+ * so a refresh can tell which BUILD files changed since the export was taken, see {@link Snapshot#getChangedFiles()}.
+ * <p>
+ * As long as memory allows, two more copies of the last export of every import are kept in memory:
+ * <ul>
+ * <li>the export as stored, serialized, so a refresh after some BUILD files changed doesn't read the cache file;</li>
+ * <li>the {@link ResolvedModel model} the modifiers made of it. A refresh without BUILD file changes that only changes
+ * what is imported from it, e.g. the incremental import depth, starts from it and only runs the resolvers.</li>
+ * </ul>
+ * <p>
+ * It can be turned off with `-Dpants.export.cache=false`.
+ */
+public class ProjectInfoCache {
+  private static final Logger LOG = Logger.getInstance(ProjectInfoCache.class);
+
+  public static final String SYSTEM_PROPERTY_EXPORT_CACHE = "pants.export.cache";
+
+  private static final String CACHE_DIRECTORY = "export-cache";
+  private static final Set<String> CONFIG_FILE_NAMES = new HashSet<>(Arrays.asList(
+    PantsConstants.PANTS, PantsConstants.PANTS_INI, PantsConstants.PANTS_TOML, ".pants.rc"
+  ));
+
+  // cache file to its last loaded or stored content
+  private static final Map<File, SoftReference<CachedExport>> ourLastExports = new ConcurrentHashMap<>();
+  // cache file to the model last resolved from its content
+  private static final Map<File, SoftReference<ResolvedModel>> ourLastModels = new ConcurrentHashMap<>();
+
+  private final File myCacheFile;
+  private final String myKey;
+  private final Map<String, String> myBuildFiles;
+
+  private ProjectInfoCache(@NotNull File cacheFile, @NotNull String key, @NotNull Map<String, String> buildFiles) {
+    myCacheFile = cacheFile;
+    myKey = key;
+    myBuildFiles = buildFiles;
+  }
+
+  private static final class CachedExport {
+    private final String myKey;
+    private final Map<String, String> myBuildFiles;
+    // serialized, because every resolve needs its own copy to modify
+    private final byte[] myProjectInfo;
+
+    private CachedExport(@NotNull String key, @NotNull Map<String, String> buildFiles, @NotNull byte[] projectInfo) {
+      myKey = key;
+      myBuildFiles = buildFiles;
+      myProjectInfo = projectInfo;
+    }
+
+    @NotNull
+    private ProjectInfo readProjectInfo() throws IOException {
+      return ProjectInfoSerializer.read(new DataInputStream(new ByteArrayInputStream(myProjectInfo)));
+    }
+  }
+
+  /**
+   * The project model after the modifiers ran, with the build graph of its targets if one was needed.
+   * It is shared by the resolves that reuse it, so it must not be modified any further.
+   */
+  public static final class ResolvedModel {
+    private final String myKey;
+    private final Map<String, String> myBuildFiles;
+    private final ProjectInfo myProjectInfo;
+    @Nullable
+    private final BuildGraph myBuildGraph;
+
+    private ResolvedModel(
+      @NotNull String key,
+      @NotNull Map<String, String> buildFiles,
+      @NotNull ProjectInfo projectInfo,
+      @Nullable BuildGraph buildGraph
+    ) {
+      myKey = key;
+      myBuildFiles = buildFiles;
+      myProjectInfo = projectInfo;
+      myBuildGraph = buildGraph;
+    }
+
+    @NotNull
+    public ProjectInfo getProjectInfo() {
+      return myProjectInfo;
+    }
+
+    @NotNull
+    public Optional<BuildGraph> getBuildGraph() {
+      return Optional.ofNullable(myBuildGraph);
+    }
+  }
+
+  /**
+   * A cached export together with the BUILD files changed since it was taken.
+   */
+  public static final class Snapshot {
+    private final ProjectInfo myProjectInfo;
+    private final Set<String> myChangedFiles;
+
+    private Snapshot(@NotNull ProjectInfo projectInfo, @NotNull Set<String> changedFiles) {
+      myProjectInfo = projectInfo;
+      myChangedFiles = changedFiles;
+    }
+
+    @NotNull
+    public ProjectInfo getProjectInfo() {
+      return myProjectInfo;
+    }
+
+    /**
+     * @return paths relative to the build root of BUILD and config files that were added, removed or modified.
+     */
+    @NotNull
+    public Set<String> getChangedFiles() {
+      return myChangedFiles;
+    }
+
+    public boolean isUpToDate() {
+      return myChangedFiles.isEmpty();
+    }
+  }
+
+  /**
+   * @return the cache for the import described by the executor, or empty if the import can't be cached,
+   * e.g. because the project is generated by a script or the cache is disabled.
+   */
+  @NotNull
+  public static Optional<ProjectInfoCache> create(@NotNull PantsCompileOptionsExecutor executor) {
+    if (!isEnabled() || PantsUtil.isExecutable(executor.getProjectPath())) {
+      return Optional.empty();
+    }
+    final String importId = getImportId(executor);
+    // `pants options` runs while the BUILD files are scanned
+    final CompletableFuture<String> pantsVersion = ImportStage.start(ImportStage.PANTS_VERSION, () -> getPantsVersion(executor));
+    try {
+      final Map<String, String> buildFiles;
+      try (ImportStage ignored = ImportStage.begin(ImportStage.FINGERPRINT)) {
+        buildFiles = scanBuildFiles(executor.getBuildRoot());
+      }
+      final String key = importId + "\n" + "pants=" + ImportStage.join(pantsVersion);
+      final File cacheFile = Paths.get(
+        executor.getBuildRoot().getPath(), ".idea", "pants-projects", CACHE_DIRECTORY, DigestUtils.sha1Hex(importId) + ".bin"
+      ).toFile();
+      return Optional.of(new ProjectInfoCache(cacheFile, DigestUtils.sha1Hex(key), buildFiles));
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to scan BUILD files, the export cache is not used", e);
+      return Optional.empty();
+    }
+  }
+
+  @NotNull
+  public Optional<Snapshot> load() {
+    final SoftReference<CachedExport> reference = ourLastExports.get(myCacheFile);
+    final CachedExport lastExport = reference != null ? reference.get() : null;
+    if (lastExport != null && lastExport.myKey.equals(myKey) && myCacheFile.exists()) {
+      try {
+        return Optional.of(new Snapshot(lastExport.readProjectInfo(), getChangedFiles(lastExport.myBuildFiles, myBuildFiles)));
+      }
+      catch (IOException e) {
+        LOG.warn("Failed to read the export of " + myCacheFile + " kept in memory", e);
+        ourLastExports.remove(myCacheFile);
+      }
+    }
+    if (!myCacheFile.exists()) {
+      return Optional.empty();
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myCacheFile)))) {
+      if (!myKey.equals(in.readUTF())) {
+        LOG.debug("Export cache " + myCacheFile + " is stale");
+        return Optional.empty();
+      }
+      final Map<String, String> cachedBuildFiles = readBuildFiles(in);
+      final CachedExport export = new CachedExport(myKey, cachedBuildFiles, FileUtil.loadBytes(in));
+      ourLastExports.put(myCacheFile, new SoftReference<>(export));
+      return Optional.of(new Snapshot(export.readProjectInfo(), getChangedFiles(cachedBuildFiles, myBuildFiles)));
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to read export cache " + myCacheFile, e);
+      ourLastExports.remove(myCacheFile);
+      FileUtil.delete(myCacheFile);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @return the model last resolved for this import, if no BUILD file changed since its export was taken.
+   */
+  @NotNull
+  public Optional<ResolvedModel> loadResolvedModel() {
+    final SoftReference<ResolvedModel> reference = ourLastModels.get(myCacheFile);
+    final ResolvedModel model = reference != null ? reference.get() : null;
+    if (model == null || !model.myKey.equals(myKey) || !model.myBuildFiles.equals(myBuildFiles)) {
+      return Optional.empty();
+    }
+    return Optional.of(model);
+  }
+
+  /**
+   * Keeps the model the modifiers made of the export stored or loaded by this cache.
+   */
+  public void storeResolvedModel(@NotNull ProjectInfo projectInfo, @NotNull Optional<BuildGraph> buildGraph) {
+    ourLastModels.put(myCacheFile, new SoftReference<>(new ResolvedModel(myKey, myBuildFiles, projectInfo, buildGraph.orElse(null))));
+  }
+
+  /**
+   * Stores the export along with the state of the BUILD files seen when this cache was created,
+   * i.e. before the export ran, so an edit made during the export is picked up by the next refresh.
+   */
+  public void store(@NotNull ProjectInfo projectInfo) {
+    try {
+      final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(serialized)) {
+        ProjectInfoSerializer.write(projectInfo, out);
+      }
+      final CachedExport export = new CachedExport(myKey, myBuildFiles, serialized.toByteArray());
+      ourLastExports.put(myCacheFile, new SoftReference<>(export));
+      ourLastModels.remove(myCacheFile);
+
+      FileUtil.createParentDirs(myCacheFile);
+      final File tempFile = new File(myCacheFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeUTF(myKey);
+        writeBuildFiles(out, myBuildFiles);
+        out.write(export.myProjectInfo);
+      }
+      Files.move(tempFile.toPath(), myCacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to write export cache " + myCacheFile, e);
+    }
+  }
+
+  public static boolean isConfigFile(@NotNull String path) {
+    return CONFIG_FILE_NAMES.contains(PathUtil.getFileName(path));
+  }
+
+  private static boolean isEnabled() {
+    return !"false".equals(System.getProperty(SYSTEM_PROPERTY_EXPORT_CACHE));
+  }
+
+  /**
+   * Identifies an import independently of the state of the repo, so each import owns exactly one cache file.
+   * The incremental import depth is left out on purpose: the export is the same for every depth.
+   */
+  @NotNull
+  private static String getImportId(@NotNull PantsCompileOptionsExecutor executor) {
+    return "resolver=" + PantsResolver.VERSION + "\n" +
+           "project=" + executor.getProjectPath() + "\n" +
+           "specs=" + String.join(" ", executor.getOptions().getSelectedTargetSpecs()) + "\n" +
+           "depAsJar=" + executor.getOptions().isImportSourceDepsAsJars() + "\n" +
+           "sourcesAndDocs=" + executor.isResolveSourcesAndDocsForJars();
+  }
+
+  @NotNull
+  private static String getPantsVersion(@NotNull PantsCompileOptionsExecutor executor) {
+    return PantsUtil.findPantsExecutable(executor.getProjectPath())
+      .flatMap(pantsExecutable -> PantsOptions.getPantsOptions(pantsExecutable.getPath()).get(PantsConstants.PANTS_OPTION_PANTS_VERSION))
+      .orElse("unknown");
+  }
+
+  @NotNull
+  private static Set<String> getChangedFiles(@NotNull Map<String, String> before, @NotNull Map<String, String> after) {
+    final Set<String> result = new TreeSet<>();
+    for (Map.Entry<String, String> entry : after.entrySet()) {
+      if (!entry.getValue().equals(before.get(entry.getKey()))) {
+        result.add(entry.getKey());
+      }
+    }
+    for (String path : before.keySet()) {
+      if (!after.containsKey(path)) {
+        result.add(path);
+      }
+    }
+    return result;
+  }
+
+  private static void writeBuildFiles(@NotNull DataOutputStream out, @NotNull Map<String, String> buildFiles) throws IOException {
+    out.writeInt(buildFiles.size());
+    for (Map.Entry<String, String> entry : buildFiles.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeUTF(entry.getValue());
+    }
+  }
+
+  @NotNull
+  private static Map<String, String> readBuildFiles(@NotNull DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final Map<String, String> result = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      result.put(in.readUTF(), in.readUTF());
+    }
+    return result;
+  }
+
+  /**
+   * Collects size and modification time of every BUILD file and Pants config file under the build root,
+   * keyed by their path relative to it. Hidden directories (e.g. `.pants.d` and `.idea`) and `dist` are skipped.
+   */
+  @NotNull
+  static Map<String, String> scanBuildFiles(@NotNull File buildRoot) throws IOException {
+    final Path root = buildRoot.toPath();
+    final Map<String, String> result = new TreeMap<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (dir.equals(root)) {
+          return FileVisitResult.CONTINUE;
+        }
+        final String name = dir.getFileName().toString();
+        return name.startsWith(".") || name.equals("dist") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        final String name = file.getFileName().toString();
+        if (PantsUtil.isBUILDFileName(name) || CONFIG_FILE_NAMES.contains(name)) {
+          final String relativePath = FileUtil.toSystemIndependentName(root.relativize(file).toString());
+          result.put(relativePath, attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return result;
+  }
+}
@@ -0,0 +1,210 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.externalSystem.model.ExternalSystemException;
+import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a long list of selected target specs into shards that are exported by concurrent `pants export` runs,
+ * then merges their results. Targets reachable from several shards are exported by each of them
+ * and deduplicated by address in {@link ProjectInfo#merge}.
+ * <p>
+ * The shards are plain Pants runs: with `--concurrent` a run waits for the first one instead of starting without pantsd.
+ * How much the runs of a build root overlap still depends on the Pants version and its locks, and shards that take turns
+ * only cost the memory of several exports, so the start and end of every shard are logged to check it.
+ * <p>
+ * It is opt-in with `-Dpants.export.shards=N`, the maximal number of concurrent exports.
+ */
+public class ShardedExport {
+  private static final Logger LOG = Logger.getInstance(ShardedExport.class);
+
+  public static final String SYSTEM_PROPERTY_EXPORT_SHARDS = "pants.export.shards";
+
+  /**
+   * Fewer specs than this per shard aren't worth another Pants process.
+   */
+  private static final int MIN_SPECS_PER_SHARD = 50;
+
+  private final List<List<String>> myShards;
+
+  private ShardedExport(@NotNull List<List<String>> shards) {
+    myShards = shards;
+  }
+
+  @NotNull
+  public static Optional<ShardedExport> plan(@NotNull PantsCompileOptionsExecutor executor) {
+    if (PantsUtil.isExecutable(executor.getProjectPath())) {
+      return Optional.empty();
+    }
+    final int maxShards = getMaxShards();
+    if (maxShards < 2) {
+      return Optional.empty();
+    }
+    return plan(executor.getOptions().getSelectedTargetSpecs(), maxShards);
+  }
+
+  @NotNull
+  static Optional<ShardedExport> plan(@NotNull List<String> targetSpecs, int maxShards) {
+    final int shardCount = Math.min(maxShards, targetSpecs.size() / MIN_SPECS_PER_SHARD);
+    if (shardCount < 2) {
+      return Optional.empty();
+    }
+    // Neighbouring specs tend to share dependencies, so keeping them in the same shard exports less twice.
+    final List<String> sortedSpecs = new ArrayList<>(targetSpecs);
+    Collections.sort(sortedSpecs);
+    final List<List<String>> shards = new ArrayList<>(shardCount);
+    for (int shard = 0; shard < shardCount; shard++) {
+      final int from = sortedSpecs.size() * shard / shardCount;
+      final int to = sortedSpecs.size() * (shard + 1) / shardCount;
+      shards.add(Collections.unmodifiableList(new ArrayList<>(sortedSpecs.subList(from, to))));
+    }
+    return Optional.of(new ShardedExport(Collections.unmodifiableList(shards)));
+  }
+
+  @NotNull
+  public List<List<String>> getShards() {
+    return myShards;
+  }
+
+  /**
+   * Fails as soon as any shard fails, cancelling the others. The status of the shards is reported from a single thread.
+   */
+  @NotNull
+  public ProjectInfo run(
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull Consumer<String> statusConsumer,
+    @Nullable ProcessAdapter processAdapter
+  ) throws IOException, ExecutionException {
+    final ExecutorService statusExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("ShardedExport Status", 1);
+    final Consumer<String> sequentialStatusConsumer = status -> statusExecutor.execute(() -> statusConsumer.consume(status));
+    try {
+      return run(
+        targetSpecs -> export(executor, targetSpecs, sequentialStatusConsumer, processAdapter),
+        executor::cancelAllProcesses
+      );
+    }
+    finally {
+      statusExecutor.shutdown();
+    }
+  }
+
+  @NotNull
+  ProjectInfo run(
+    @NotNull ShardExporter exporter,
+    @NotNull Runnable cancelProcesses
+  ) throws IOException, ExecutionException {
+    final CompletionService<ProjectInfo> completionService =
+      new ExecutorCompletionService<>(AppExecutorUtil.getAppExecutorService());
+    final long start = System.currentTimeMillis();
+    // Only read once the futures are done, which makes the writes visible.
+    final long[] starts = new long[myShards.size()];
+    final long[] ends = new long[myShards.size()];
+    final List<Future<ProjectInfo>> exports = new ArrayList<>(myShards.size());
+    for (int i = 0; i < myShards.size(); i++) {
+      final int shard = i;
+      exports.add(completionService.submit(() -> {
+        starts[shard] = System.currentTimeMillis() - start;
+        try {
+          return exporter.export(myShards.get(shard));
+        }
+        finally {
+          ends[shard] = System.currentTimeMillis() - start;
+        }
+      }));
+    }
+    try {
+      final ProjectInfo[] results = new ProjectInfo[exports.size()];
+      for (int i = 0; i < exports.size(); i++) {
+        final Future<ProjectInfo> export = completionService.take();
+        results[exports.indexOf(export)] = export.get();
+      }
+      for (int i = 0; i < results.length; i++) {
+        LOG.info(String.format(
+          "Shard %d of %d exported %d specs from %d ms to %d ms", i + 1, results.length, myShards.get(i).size(), starts[i], ends[i]
+        ));
+      }
+      // Merged in the order of the shards, so the result doesn't depend on which shard finished first.
+      for (int i = 1; i < results.length; i++) {
+        results[0].merge(results[i]);
+      }
+      return results[0];
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel(exports, cancelProcesses);
+      throw new ExternalSystemException(e);
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      cancel(exports, cancelProcesses);
+      final Throwable cause = e.getCause();
+      LOG.warn("Export of a shard failed", cause);
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof ExecutionException) {
+        throw (ExecutionException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ExternalSystemException(cause);
+    }
+  }
+
+
+  @NotNull
+  private static ProjectInfo export(
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull List<String> targetSpecs,
+    @NotNull Consumer<String> statusConsumer,
+    @Nullable ProcessAdapter processAdapter
+  ) throws IOException, ExecutionException {
+    try (Reader output = executor.loadProjectStructure(targetSpecs, statusConsumer, processAdapter)) {
+      return PantsResolver.parseProjectInfoFromJSON(output);
+    }
+  }
+
+  private static void cancel(@NotNull List<Future<ProjectInfo>> exports, @NotNull Runnable cancelProcesses) {
+    for (Future<ProjectInfo> export : exports) {
+      export.cancel(true);
+    }
+    cancelProcesses.run();
+  }
+
+  interface ShardExporter {
+    @NotNull
+    ProjectInfo export(@NotNull List<String> targetSpecs) throws IOException, ExecutionException;
+  }
+
+  private static int getMaxShards() {
+    try {
+      return Integer.parseInt(System.getProperty(SYSTEM_PROPERTY_EXPORT_SHARDS, "0"));
+    }
+    catch (NumberFormatException e) {
+      LOG.warn("Invalid " + SYSTEM_PROPERTY_EXPORT_SHARDS + ": " + System.getProperty(SYSTEM_PROPERTY_EXPORT_SHARDS));
+      return 0;
+    }
+  }
+}
@@ -60,6 +60,6 @@ public class TargetMetadata extends ModuleData {
   }
 
   public void setLibraryExcludes(Set<String> libraryExcludes) {
-    myLibraryExcludes = libraryExcludes;
+    myLibraryExcludes = new HashSet<>(libraryExcludes);
   }
 }
@@ -3,25 +3,32 @@
 
 package com.twitter.intellij.pants.service.project.model;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
-import java.util.Map;
+import java.io.IOException;
 
-public class LibraryInfoDeserializer implements JsonDeserializer<LibraryInfo> {
+public class LibraryInfoDeserializer extends TypeAdapter<LibraryInfo> {
   public static LibraryInfoDeserializer INSTANCE = new LibraryInfoDeserializer();
 
   @Override
-  public LibraryInfo deserialize(JsonElement element, Type type, final JsonDeserializationContext context) throws JsonParseException {
+  public LibraryInfo read(JsonReader in) throws IOException {
     LibraryInfo result = new LibraryInfo();
-    final JsonObject object = element.getAsJsonObject();
-    for (Map.Entry<String, JsonElement> node : object.entrySet()) {
-      result.addJar(node.getKey(), node.getValue().getAsString());
+    in.beginObject();
+    while (in.hasNext()) {
+      final String classifier = in.nextName();
+      final String path = TargetInfoDeserializer.nextStringOrNull(in);
+      if (path != null) {
+        result.addJar(classifier, path);
+      }
     }
+    in.endObject();
     return result;
   }
+
+  @Override
+  public void write(JsonWriter out, LibraryInfo value) {
+    throw new UnsupportedOperationException("LibraryInfo is never serialized to json");
+  }
 }
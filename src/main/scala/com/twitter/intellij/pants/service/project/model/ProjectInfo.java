@@ -4,36 +4,55 @@
 package com.twitter.intellij.pants.service.project.model;
 
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.model.TargetAddressInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.annotations.TestOnly;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
 
 public class ProjectInfo {
   public static ProjectInfo fromJson(@NotNull String data) {
+    return fromJson(new StringReader(data));
+  }
+
+  /**
+   * Parses `pants export` output as a stream, so neither the raw text nor a json tree of it is kept in memory.
+   */
+  public static ProjectInfo fromJson(@NotNull Reader data) {
+    final SymbolTable symbols = new SymbolTable();
     final GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(TargetInfo.class, TargetInfoDeserializer.INSTANCE);
-    builder.registerTypeAdapter(LibraryInfo.class, LibraryInfoDeserializer.INSTANCE);
-    final ProjectInfo projectInfo = builder.create().fromJson(data, ProjectInfo.class);
-    projectInfo.initTargetAddresses();
+    builder.registerTypeAdapter(TargetInfo.class, new TargetInfoDeserializer(symbols).nullSafe());
+    builder.registerTypeAdapter(LibraryInfo.class, LibraryInfoDeserializer.INSTANCE.nullSafe());
+    final ProjectInfo projectInfo = builder.create().fromJson(new JsonReader(data), ProjectInfo.class);
+    if (projectInfo == null) {
+      throw new JsonSyntaxException("Empty project structure");
+    }
+    projectInfo.initTargetAddresses(symbols);
 
     return projectInfo;
   }
 
-  @TestOnly
   public ProjectInfo() {
   }
 
@@ -42,6 +61,16 @@ public class ProjectInfo {
   protected Map<String, LibraryInfo> libraries;
   // name to info
   protected Map<String, TargetInfo> targets;
+  // name to names of targets that might depend on it. Built on first use, entries are verified before use.
+  @Nullable
+  private transient Map<String, Set<String>> myDependees = null;
+  // Sorted once and shared by every resolver extension, dropped whenever the targets or libraries change.
+  @Nullable
+  private transient List<Map.Entry<String, TargetInfo>> mySortedTargets = null;
+  @Nullable
+  private transient List<Map.Entry<String, LibraryInfo>> mySortedLibraries = null;
+  @Nullable
+  private transient volatile NavigableSet<String> myLibraryIds = null;
 
   /* This might need to be expanded to show all properties that
    * a target type can contain like:
@@ -61,9 +90,15 @@ public class ProjectInfo {
   @Nullable
   protected PythonSetup python_setup = null;
 
+  /**
+   * @return an immutable snapshot of the entries in natural order of their keys.
+   */
   private static <T> List<Map.Entry<String, T>> getSortedEntries(Map<String, T> map) {
-    return ContainerUtil.sorted(
-      map.entrySet(),
+    final List<Map.Entry<String, T>> entries = new ArrayList<>(map.size());
+    for (Map.Entry<String, T> entry : map.entrySet()) {
+      entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+    }
+    entries.sort(
       new Comparator<Map.Entry<String, T>>() {
         @Override
         public int compare(Map.Entry<String, T> o1, Map.Entry<String, T> o2) {
@@ -71,10 +106,14 @@ public class ProjectInfo {
         }
       }
     );
+    return Collections.unmodifiableList(entries);
   }
 
   public List<Map.Entry<String, LibraryInfo>> getSortedLibraries() {
-    return getSortedEntries(getLibraries());
+    if (mySortedLibraries == null) {
+      mySortedLibraries = getSortedEntries(libraries);
+    }
+    return mySortedLibraries;
   }
 
   public Map<String, LibraryInfo> getLibraries() {
@@ -83,10 +122,15 @@ public class ProjectInfo {
 
   public void setLibraries(Map<String, LibraryInfo> libraries) {
     this.libraries = libraries;
+    mySortedLibraries = null;
+    myLibraryIds = null;
   }
 
   public List<Map.Entry<String, TargetInfo>> getSortedTargets() {
-    return getSortedEntries(getTargets());
+    if (mySortedTargets == null) {
+      mySortedTargets = getSortedEntries(targets);
+    }
+    return mySortedTargets;
   }
 
   public Map<String, TargetInfo> getTargets() {
@@ -95,6 +139,8 @@ public class ProjectInfo {
 
   public void setTargets(Map<String, TargetInfo> targets) {
     this.targets = targets;
+    myDependees = null;
+    mySortedTargets = null;
   }
 
   @NotNull
@@ -116,13 +162,12 @@ public class ProjectInfo {
     if (versionIndex == -1) {
       return null;
     }
-    final String libraryName = libraryId.substring(0, versionIndex);
-    for (Map.Entry<String, LibraryInfo> libIdAndJars : libraries.entrySet()) {
-      final String currentLibraryId = libIdAndJars.getKey();
-      if (!StringUtil.startsWith(currentLibraryId, libraryName + ":")) {
-        continue;
+    final String libraryPrefix = libraryId.substring(0, versionIndex) + ":";
+    for (String currentLibraryId : getLibraryIds().tailSet(libraryPrefix, true)) {
+      if (!currentLibraryId.startsWith(libraryPrefix)) {
+        break;
       }
-      final LibraryInfo currentInfo = libIdAndJars.getValue();
+      final LibraryInfo currentInfo = libraries.get(currentLibraryId);
       if (currentInfo != null) {
         LOG.info("Using " + currentLibraryId + " instead of " + libraryId);
         return currentInfo;
@@ -131,13 +176,33 @@ public class ProjectInfo {
     return null;
   }
 
+  /**
+   * Library ids in lexicographic order, so looking up the versions of a library is a range query.
+   */
+  @NotNull
+  private NavigableSet<String> getLibraryIds() {
+    NavigableSet<String> libraryIds = myLibraryIds;
+    if (libraryIds == null) {
+      libraryIds = new TreeSet<>(libraries.keySet());
+      myLibraryIds = libraryIds;
+    }
+    return libraryIds;
+  }
+
   @Nullable
   public TargetInfo getTarget(String targetName) {
     return targets.get(targetName);
   }
 
   public void addTarget(String targetName, TargetInfo info) {
-    targets.put(targetName, info);
+    final TargetInfo previous = targets.put(targetName, info);
+    mySortedTargets = null;
+    if (previous != null && previous != info) {
+      previous.detachFrom(this, targetName);
+    }
+    if (myDependees != null) {
+      register(targetName, info);
+    }
   }
 
   public void removeTargets(Collection<String> targetNames) {
@@ -147,31 +212,186 @@ public class ProjectInfo {
   }
 
   public void renameTarget(@NotNull String targetName, @NotNull String newTargetName) {
+    // The index has to exist before the target is added under its new name, so the target is registered under it
+    // and stays attached once the old name is removed.
+    getDependeesIndex();
     addTarget(newTargetName, getTarget(targetName));
     replaceDependency(targetName, newTargetName);
     removeTarget(targetName);
   }
 
   public void removeTarget(String targetName) {
-    targets.remove(targetName);
-    for (TargetInfo targetInfo : targets.values()) {
-      targetInfo.getTargets().remove(targetName);
+    final TargetInfo removed = targets.remove(targetName);
+    mySortedTargets = null;
+    if (removed != null) {
+      removed.detachFrom(this, targetName);
+    }
+    final Set<String> dependees = getDependeesIndex().remove(targetName);
+    if (dependees == null) {
+      return;
+    }
+    for (String dependee : dependees) {
+      final TargetInfo dependeeInfo = targets.get(dependee);
+      if (dependeeInfo != null) {
+        dependeeInfo.removeDependency(targetName);
+      }
+    }
+  }
+
+  /**
+   * @return names of the targets that depend on the given one.
+   */
+  @NotNull
+  public Set<String> getDependees(@NotNull String targetName) {
+    final Set<String> candidates = getDependeesIndex().get(targetName);
+    if (candidates == null) {
+      return Collections.emptySet();
+    }
+    final Set<String> result = new HashSet<>();
+    for (String candidate : candidates) {
+      final TargetInfo candidateInfo = targets.get(candidate);
+      if (candidateInfo != null && candidateInfo.dependOn(targetName)) {
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Merges a partial export of the same project into this one.
+   * Stale targets that are absent from the partial export were deleted, so they are removed along with
+   * the dependencies on them; every target of the partial export replaces its previous version.
+   * <p>
+   * The partial export has its own target roots, i.e. the changed directories and their dependees,
+   * so a replaced target keeps the root flag it had here, and a new target is a root only if it is selected.
+   *
+   * @param isSelected whether a target is selected by the target specs of the project.
+   */
+  public void update(
+    @NotNull ProjectInfo partial,
+    @NotNull Collection<String> staleTargetNames,
+    @NotNull Predicate<String> isSelected
+  ) {
+    final Map<String, TargetInfo> partialTargets = partial.targets != null ? partial.targets : Collections.emptyMap();
+    for (String targetName : staleTargetNames) {
+      if (!partialTargets.containsKey(targetName)) {
+        removeTarget(targetName);
+      }
+    }
+    for (Map.Entry<String, TargetInfo> entry : partialTargets.entrySet()) {
+      final TargetInfo previous = targets.get(entry.getKey());
+      final boolean isTargetRoot = previous != null
+                                   ? previous.getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetRoot)
+                                   : isSelected.test(entry.getKey());
+      entry.getValue().getAddressInfos().forEach(addressInfo -> addressInfo.setIsTargetRoot(isTargetRoot));
+      addTarget(entry.getKey(), entry.getValue());
+    }
+    if (partial.libraries != null) {
+      libraries.putAll(partial.libraries);
+      mySortedLibraries = null;
+      myLibraryIds = null;
+    }
+    if (partial.python_setup != null) {
+      python_setup = partial.python_setup;
+    }
+  }
+
+  /**
+   * Merges the export of another part of the same project into this one, e.g. of another shard of the target specs.
+   * A target exported by both is kept once, and is a target root if it was one in either export.
+   */
+  public void merge(@NotNull ProjectInfo other) {
+    if (other.targets != null) {
+      for (Map.Entry<String, TargetInfo> entry : other.targets.entrySet()) {
+        final TargetInfo existing = targets.get(entry.getKey());
+        if (existing == null) {
+          addTarget(entry.getKey(), entry.getValue());
+        }
+        else if (entry.getValue().getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetRoot)) {
+          existing.getAddressInfos().forEach(addressInfo -> addressInfo.setIsTargetRoot(true));
+        }
+      }
+    }
+    if (other.libraries != null) {
+      for (Map.Entry<String, LibraryInfo> entry : other.libraries.entrySet()) {
+        libraries.putIfAbsent(entry.getKey(), entry.getValue());
+      }
+      mySortedLibraries = null;
+      myLibraryIds = null;
+    }
+    if (python_setup == null) {
+      python_setup = other.python_setup;
+    }
+    if (availableTargetTypes.length == 0) {
+      availableTargetTypes = other.availableTargetTypes;
     }
   }
 
   public void replaceDependency(String targetName, String newTargetName) {
-    for (TargetInfo targetInfo : targets.values()) {
-      targetInfo.replaceDependency(targetName, newTargetName);
+    final Set<String> dependees = getDependeesIndex().remove(targetName);
+    if (dependees == null) {
+      return;
     }
+    for (String dependee : dependees) {
+      final TargetInfo dependeeInfo = targets.get(dependee);
+      if (dependeeInfo != null) {
+        dependeeInfo.replaceDependency(targetName, newTargetName);
+      }
+    }
+  }
+
+  /**
+   * The index may list targets that no longer depend on a name, e.g. after a dependency was removed
+   * straight from {@link TargetInfo#getTargets()}, so every entry is checked before it is acted upon.
+   * New dependencies have to be added with {@link TargetInfo#addDependency} or {@link TargetInfo#setTargets}.
+   */
+  @NotNull
+  private Map<String, Set<String>> getDependeesIndex() {
+    if (myDependees == null) {
+      myDependees = new HashMap<>();
+      for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+        register(entry.getKey(), entry.getValue());
+      }
+    }
+    return myDependees;
   }
 
-  private void initTargetAddresses() {
-    for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
-      final TargetInfo info = entry.getValue();
-      final String address = entry.getKey();
-      for (TargetAddressInfo addressInfo : info.getAddressInfos()) {
-        addressInfo.setTargetAddress(address);
+  private void register(@NotNull String targetName, @NotNull TargetInfo info) {
+    info.attachTo(this, targetName);
+    for (String dependency : info.getTargets()) {
+      indexDependency(targetName, dependency);
+    }
+  }
+
+  void indexDependency(@NotNull String targetName, @NotNull String dependency) {
+    if (myDependees != null) {
+      myDependees.computeIfAbsent(dependency, k -> new HashSet<>()).add(targetName);
+    }
+  }
+
+  /**
+   * Also replaces the keys of the targets and libraries with the instances already referenced by dependencies,
+   * so every address is kept once.
+   */
+  private void initTargetAddresses(@NotNull SymbolTable symbols) {
+    if (targets != null) {
+      final Map<String, TargetInfo> internedTargets = new HashMap<>(targets.size() * 4 / 3 + 1);
+      for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+        final TargetInfo info = entry.getValue();
+        final String address = symbols.intern(entry.getKey());
+        for (TargetAddressInfo addressInfo : info.getAddressInfos()) {
+          addressInfo.setTargetAddress(address);
+        }
+        internedTargets.put(address, info);
+      }
+      targets = internedTargets;
+    }
+    if (libraries != null) {
+      final Map<String, LibraryInfo> internedLibraries = new HashMap<>(libraries.size() * 4 / 3 + 1);
+      for (Map.Entry<String, LibraryInfo> entry : libraries.entrySet()) {
+        internedLibraries.put(symbols.intern(entry.getKey()), entry.getValue());
       }
+      libraries = internedLibraries;
     }
   }
 
@@ -0,0 +1,263 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.twitter.intellij.pants.model.Globs;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary form of a parsed {@link ProjectInfo}, used by the on-disk export cache.
+ * <p>
+ * Every string is written once and referenced by its index afterwards,
+ * because target addresses and library ids repeat across thousands of targets.
+ */
+public final class ProjectInfoSerializer {
+  /**
+   * Bump this version whenever the layout below changes.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private ProjectInfoSerializer() {
+  }
+
+  public static void write(@NotNull ProjectInfo info, @NotNull DataOutputStream stream) throws IOException {
+    final Output out = new Output(stream);
+    stream.writeInt(FORMAT_VERSION);
+
+    out.writeString(info.version);
+    out.writeStrings(info.availableTargetTypes == null ? Collections.<String>emptyList() : Arrays.asList(info.availableTargetTypes));
+    writePythonSetup(out, info.python_setup);
+
+    final Map<String, LibraryInfo> libraries = info.libraries != null ? info.libraries : Collections.<String, LibraryInfo>emptyMap();
+    stream.writeInt(libraries.size());
+    for (Map.Entry<String, LibraryInfo> entry : libraries.entrySet()) {
+      out.writeString(entry.getKey());
+      final Map<String, String> jars = entry.getValue().getContents();
+      stream.writeInt(jars.size());
+      for (Map.Entry<String, String> jar : jars.entrySet()) {
+        out.writeString(jar.getKey());
+        out.writeString(jar.getValue());
+      }
+    }
+
+    stream.writeInt(info.targets.size());
+    for (Map.Entry<String, TargetInfo> entry : info.targets.entrySet()) {
+      out.writeString(entry.getKey());
+      writeTargetInfo(out, entry.getValue());
+    }
+  }
+
+  @NotNull
+  public static ProjectInfo read(@NotNull DataInputStream stream) throws IOException {
+    final Input in = new Input(stream);
+    final int version = stream.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported project info format " + version);
+    }
+
+    final ProjectInfo info = new ProjectInfo();
+    info.version = in.readString();
+    info.availableTargetTypes = in.readStrings(new ArrayList<>()).toArray(new String[0]);
+    info.python_setup = readPythonSetup(in);
+
+    final int librariesCount = stream.readInt();
+    final Map<String, LibraryInfo> libraries = new HashMap<>(librariesCount);
+    for (int i = 0; i < librariesCount; i++) {
+      final String libraryId = in.readString();
+      final LibraryInfo libraryInfo = new LibraryInfo();
+      final int jarsCount = stream.readInt();
+      for (int j = 0; j < jarsCount; j++) {
+        libraryInfo.addJar(in.readString(), in.readString());
+      }
+      libraries.put(libraryId, libraryInfo);
+    }
+    info.setLibraries(libraries);
+
+    final int targetsCount = stream.readInt();
+    final Map<String, TargetInfo> targets = new HashMap<>(targetsCount);
+    final SymbolTable symbols = new SymbolTable();
+    for (int i = 0; i < targetsCount; i++) {
+      final String targetName = in.readString();
+      targets.put(targetName, readTargetInfo(in, symbols));
+    }
+    info.setTargets(targets);
+    return info;
+  }
+
+  private static void writePythonSetup(@NotNull Output out, @Nullable PythonSetup pythonSetup) throws IOException {
+    out.stream.writeBoolean(pythonSetup != null);
+    if (pythonSetup == null) {
+      return;
+    }
+    out.writeString(pythonSetup.getDefaultInterpreter());
+    out.stream.writeInt(pythonSetup.getInterpreters().size());
+    for (Map.Entry<String, PythonInterpreterInfo> entry : pythonSetup.getInterpreters().entrySet()) {
+      out.writeString(entry.getKey());
+      out.writeString(entry.getValue().getBinary());
+      out.writeString(entry.getValue().getChroot());
+    }
+  }
+
+  @Nullable
+  private static PythonSetup readPythonSetup(@NotNull Input in) throws IOException {
+    if (!in.stream.readBoolean()) {
+      return null;
+    }
+    final PythonSetup pythonSetup = new PythonSetup();
+    pythonSetup.setDefaultInterpreter(in.readString());
+    final int interpretersCount = in.stream.readInt();
+    final Map<String, PythonInterpreterInfo> interpreters = new HashMap<>(interpretersCount);
+    for (int i = 0; i < interpretersCount; i++) {
+      final String name = in.readString();
+      final PythonInterpreterInfo interpreterInfo = new PythonInterpreterInfo();
+      interpreterInfo.setBinary(in.readString());
+      interpreterInfo.setChroot(in.readString());
+      interpreters.put(name, interpreterInfo);
+    }
+    pythonSetup.setInterpreters(interpreters);
+    return pythonSetup;
+  }
+
+  private static void writeTargetInfo(@NotNull Output out, @NotNull TargetInfo info) throws IOException {
+    out.stream.writeInt(info.getAddressInfos().size());
+    for (TargetAddressInfo addressInfo : info.getAddressInfos()) {
+      out.writeString(addressInfo.getTargetAddress());
+      out.writeString(addressInfo.getTargetType());
+      out.writeString(addressInfo.getInternalPantsTargetType());
+      out.writeString(addressInfo.getId());
+      out.stream.writeBoolean(addressInfo.isSynthetic());
+      out.stream.writeBoolean(addressInfo.isTargetRoot());
+      out.writeStrings(addressInfo.getGlobs().getGlobs());
+    }
+    out.writeStrings(info.getTargets());
+    out.writeStrings(info.getLibraries());
+    out.writeStrings(info.getExcludes());
+    out.stream.writeInt(info.getRoots().size());
+    for (ContentRoot root : info.getRoots()) {
+      out.writeString(root.getRawSourceRoot());
+      out.writeString(StringUtil.notNullize(root.getPackagePrefix()));
+    }
+  }
+
+  @NotNull
+  private static TargetInfo readTargetInfo(@NotNull Input in, @NotNull SymbolTable symbols) throws IOException {
+    final int addressInfosCount = in.stream.readInt();
+    final Set<TargetAddressInfo> addressInfos = new HashSet<>(addressInfosCount);
+    for (int i = 0; i < addressInfosCount; i++) {
+      final TargetAddressInfo addressInfo = new TargetAddressInfo();
+      addressInfo.setTargetAddress(in.readString());
+      final String targetType = in.readString();
+      if (targetType != null) {
+        addressInfo.setTargetType(targetType);
+      }
+      final String pantsTargetType = in.readString();
+      if (pantsTargetType != null) {
+        addressInfo.setPantsTargetType(pantsTargetType);
+      }
+      addressInfo.setId(in.readString());
+      addressInfo.setIsSynthetic(in.stream.readBoolean());
+      addressInfo.setIsTargetRoot(in.stream.readBoolean());
+      final List<String> globs = in.readStrings(new ArrayList<>());
+      if (!globs.isEmpty()) {
+        final Globs addressGlobs = new Globs();
+        addressGlobs.setGlobs(globs);
+        addressInfo.setGlobs(addressGlobs);
+      }
+      addressInfos.add(addressInfo);
+    }
+    final Set<String> targets = in.readStrings(new HashSet<>());
+    final Set<String> libraries = in.readStrings(new HashSet<>());
+    final Set<String> excludes = in.readStrings(new HashSet<>());
+    final int rootsCount = in.stream.readInt();
+    final Set<ContentRoot> roots = new HashSet<>(rootsCount);
+    for (int i = 0; i < rootsCount; i++) {
+      roots.add(new ContentRoot(in.readString(), in.readString()));
+    }
+    return new TargetInfo(symbols, addressInfos, targets, libraries, excludes, roots);
+  }
+
+  private static class Output {
+    private final DataOutputStream stream;
+    private final Map<String, Integer> myStringIds = new HashMap<>();
+
+    private Output(@NotNull DataOutputStream stream) {
+      this.stream = stream;
+    }
+
+    private void writeString(@Nullable String value) throws IOException {
+      if (value == null) {
+        stream.writeInt(-1);
+        return;
+      }
+      final Integer id = myStringIds.get(value);
+      if (id != null) {
+        stream.writeInt(id);
+        return;
+      }
+      // A new string is announced with the next free id, followed by its value.
+      final int newId = myStringIds.size();
+      myStringIds.put(value, newId);
+      stream.writeInt(newId);
+      stream.writeUTF(value);
+    }
+
+    private void writeStrings(@NotNull Collection<String> values) throws IOException {
+      stream.writeInt(values.size());
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+  }
+
+  private static class Input {
+    private final DataInputStream stream;
+    private final List<String> myStrings = new ArrayList<>();
+
+    private Input(@NotNull DataInputStream stream) {
+      this.stream = stream;
+    }
+
+    @Nullable
+    private String readString() throws IOException {
+      final int id = stream.readInt();
+      if (id == -1) {
+        return null;
+      }
+      if (id < myStrings.size()) {
+        return myStrings.get(id);
+      }
+      if (id != myStrings.size()) {
+        throw new IOException("Corrupted string table at id " + id);
+      }
+      final String value = stream.readUTF();
+      myStrings.add(value);
+      return value;
+    }
+
+    @NotNull
+    private <C extends Collection<String>> C readStrings(@NotNull C result) throws IOException {
+      final int size = stream.readInt();
+      for (int i = 0; i < size; i++) {
+        result.add(readString());
+      }
+      return result;
+    }
+  }
+}
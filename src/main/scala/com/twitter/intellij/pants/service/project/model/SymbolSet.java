@@ -0,0 +1,161 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of symbols of a {@link SymbolTable}, stored as an array of their ids instead of a tree of string entries.
+ * A {@link java.util.TreeSet} costs about 40 bytes per element on top of the string, an id costs 4.
+ * <p>
+ * The ids are kept in the order of their symbols, so the set iterates in the same order as the {@link java.util.TreeSet}
+ * it replaces. Lookups are binary searches and updates shift the array, which is cheap for the sets of a target:
+ * its dependencies, libraries and excludes rarely number more than a few dozen.
+ */
+final class SymbolSet extends AbstractSet<String> {
+  private static final int[] EMPTY = new int[0];
+
+  private final SymbolTable mySymbols;
+  private int[] myIds = EMPTY;
+  private int mySize = 0;
+  private int myModificationCount = 0;
+
+  SymbolSet(@NotNull SymbolTable symbols, @NotNull Collection<String> values) {
+    mySymbols = symbols;
+    final String[] sorted = values.toArray(new String[0]);
+    Arrays.sort(sorted);
+    myIds = new int[sorted.length];
+    for (String value : sorted) {
+      if (mySize == 0 || !value.equals(mySymbols.symbol(myIds[mySize - 1]))) {
+        myIds[mySize++] = mySymbols.id(value);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return mySize;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof String && indexOf((String) o) >= 0;
+  }
+
+  @Override
+  public boolean add(@NotNull String value) {
+    final int index = indexOf(value);
+    if (index >= 0) {
+      return false;
+    }
+    final int insertionPoint = -index - 1;
+    if (mySize == myIds.length) {
+      myIds = Arrays.copyOf(myIds, Math.max(4, mySize + (mySize >> 1)));
+    }
+    System.arraycopy(myIds, insertionPoint, myIds, insertionPoint + 1, mySize - insertionPoint);
+    myIds[insertionPoint] = mySymbols.id(value);
+    mySize++;
+    myModificationCount++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!(o instanceof String)) {
+      return false;
+    }
+    final int index = indexOf((String) o);
+    if (index < 0) {
+      return false;
+    }
+    removeAt(index);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    myIds = EMPTY;
+    mySize = 0;
+    myModificationCount++;
+  }
+
+  @NotNull
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int myNext = 0;
+      private int myLast = -1;
+      private int myExpectedModificationCount = myModificationCount;
+
+      @Override
+      public boolean hasNext() {
+        return myNext < mySize;
+      }
+
+      @Override
+      public String next() {
+        checkForComodification();
+        if (myNext >= mySize) {
+          throw new NoSuchElementException();
+        }
+        myLast = myNext++;
+        return mySymbols.symbol(myIds[myLast]);
+      }
+
+      @Override
+      public void remove() {
+        if (myLast < 0) {
+          throw new IllegalStateException();
+        }
+        checkForComodification();
+        removeAt(myLast);
+        myNext = myLast;
+        myLast = -1;
+        myExpectedModificationCount = myModificationCount;
+      }
+
+      private void checkForComodification() {
+        if (myModificationCount != myExpectedModificationCount) {
+          throw new ConcurrentModificationException();
+        }
+      }
+    };
+  }
+
+  private void removeAt(int index) {
+    System.arraycopy(myIds, index + 1, myIds, index, mySize - index - 1);
+    mySize--;
+    myModificationCount++;
+  }
+
+  /**
+   * @return the index of the value, or `-(insertion point) - 1` if it isn't in the set, as {@link Arrays#binarySearch} does.
+   */
+  private int indexOf(@NotNull String value) {
+    int low = 0;
+    int high = mySize - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final String symbol = mySymbols.symbol(myIds[middle]);
+      final int comparison = symbol == value ? 0 : symbol.compareTo(value);
+      if (comparison < 0) {
+        low = middle + 1;
+      }
+      else if (comparison > 0) {
+        high = middle - 1;
+      }
+      else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a single instance of every address, library id and target type read from one `pants export` output,
+ * and numbers them so that {@link SymbolSet}s can hold the dependencies, libraries and excludes of a target as ids.
+ * <p>
+ * Each dependency of each target is otherwise its own copy of the dependency's address,
+ * and on large repositories those copies take more heap than everything else in {@link ProjectInfo}.
+ * <p>
+ * New symbols are added under a lock. Looking a symbol up by id isn't locked: whoever holds an id
+ * has seen the symbol it was given for.
+ */
+final class SymbolTable {
+  private final Map<String, Integer> myIds = new HashMap<>();
+  private volatile String[] mySymbols = new String[64];
+  private int mySize = 0;
+
+  @Nullable
+  @Contract("null -> null; !null -> !null")
+  synchronized String intern(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+    return mySymbols[id(value)];
+  }
+
+  /**
+   * @return the id of the symbol, adding it to the table if it is new.
+   */
+  synchronized int id(@NotNull String value) {
+    final Integer id = myIds.get(value);
+    if (id != null) {
+      return id;
+    }
+    String[] symbols = mySymbols;
+    if (mySize == symbols.length) {
+      symbols = Arrays.copyOf(symbols, symbols.length * 2);
+    }
+    symbols[mySize] = value;
+    mySymbols = symbols;
+    myIds.put(value, mySize);
+    return mySize++;
+  }
+
+  @NotNull
+  String symbol(int id) {
+    return mySymbols[id];
+  }
+}
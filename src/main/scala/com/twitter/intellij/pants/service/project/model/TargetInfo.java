@@ -14,11 +14,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 public class TargetInfo {
 
@@ -41,6 +40,29 @@ public class TargetInfo {
    */
   protected Set<ContentRoot> roots = Collections.emptySet();
 
+  /**
+   * The table of the export this target was read from, if any. Its dependencies, libraries and excludes
+   * are then kept as {@link SymbolSet}s of it.
+   */
+  @Nullable
+  private transient SymbolTable mySymbols = null;
+
+  /**
+   * The project this target is registered in under {@link #myOwnerName}.
+   * It is told about new dependencies to keep its dependee index up to date, see {@link ProjectInfo#getDependees}.
+   */
+  @Nullable
+  private transient ProjectInfo myOwner = null;
+  @Nullable
+  private transient String myOwnerName = null;
+
+  /**
+   * Properties derived from {@link #addressInfos}, computed on first use since they are asked for many times per target.
+   * The set can only be changed through {@link #setAddressInfos}, which drops them.
+   */
+  @Nullable
+  private transient AddressInfoProperties myAddressInfoProperties = null;
+
   public TargetInfo(TargetAddressInfo... addressInfos) {
     setAddressInfos(ContainerUtil.newHashSet(addressInfos));
   }
@@ -52,6 +74,18 @@ public class TargetInfo {
     Set<String> excludes,
     Set<ContentRoot> roots
   ) {
+    this(null, addressInfos, targets, libraries, excludes, roots);
+  }
+
+  TargetInfo(
+    @Nullable SymbolTable symbols,
+    Set<TargetAddressInfo> addressInfos,
+    Set<String> targets,
+    Set<String> libraries,
+    Set<String> excludes,
+    Set<ContentRoot> roots
+  ) {
+    mySymbols = symbols;
     setAddressInfos(addressInfos);
     setLibraries(libraries);
     setExcludes(excludes);
@@ -59,12 +93,16 @@ public class TargetInfo {
     setRoots(roots);
   }
 
+  /**
+   * @return an unmodifiable view of the address infos, see {@link #setAddressInfos} to change them.
+   */
   public Set<TargetAddressInfo> getAddressInfos() {
-    return addressInfos;
+    return Collections.unmodifiableSet(addressInfos);
   }
 
   public void setAddressInfos(Set<TargetAddressInfo> addressInfos) {
     this.addressInfos = addressInfos;
+    myAddressInfoProperties = null;
   }
 
   @NotNull
@@ -73,7 +111,7 @@ public class TargetInfo {
   }
 
   public void setLibraries(Set<String> libraries) {
-    this.libraries = new TreeSet<>(libraries);
+    this.libraries = newSymbolSet(libraries);
   }
 
   @NotNull
@@ -82,7 +120,7 @@ public class TargetInfo {
   }
 
   public void setExcludes(Set<String> excludes) {
-    this.excludes = new TreeSet<>(excludes);
+    this.excludes = newSymbolSet(excludes);
   }
 
   @NotNull
@@ -91,7 +129,10 @@ public class TargetInfo {
   }
 
   public void setTargets(Set<String> targets) {
-    this.targets = new TreeSet<>(targets);
+    this.targets = newSymbolSet(targets);
+    for (String targetName : this.targets) {
+      onDependencyAdded(targetName);
+    }
   }
 
   @NotNull
@@ -103,6 +144,11 @@ public class TargetInfo {
     this.roots = new TreeSet<>(roots);
   }
 
+  @NotNull
+  private Set<String> newSymbolSet(@NotNull Set<String> values) {
+    return mySymbols != null ? new SymbolSet(mySymbols, values) : new TreeSet<>(values);
+  }
+
   public boolean isEmpty() {
     return libraries.isEmpty() && targets.isEmpty() && roots.isEmpty() && addressInfos.isEmpty();
   }
@@ -121,51 +167,34 @@ public class TargetInfo {
   }
 
   public boolean isTest() {
-    return ContainerUtil.exists(
-      getAddressInfos(),
-      new Condition<TargetAddressInfo>() {
-        @Override
-        public boolean value(TargetAddressInfo info) {
-          return PantsUtil.getSourceTypeForTargetType(info.getTargetType(), info.isSynthetic()).toExternalSystemSourceType().isTest();
-        }
-      }
-    );
+    return getAddressInfoProperties().myIsTest;
   }
 
   @NotNull
   public PantsSourceType getSourcesType() {
-    // In the case where multiple targets get combined into one module,
-    // the type of common module should be in the order of
-    // source -> test source -> resource -> test resources. (like Ranked Value in Pants options)
-    // e.g. if source and resources get combined, the common module should be source type.
-
-    Set<PantsSourceType> allTypes = getAddressInfos().stream()
-      .map(s -> PantsUtil.getSourceTypeForTargetType(s.getTargetType(), s.isSynthetic()))
-      .collect(Collectors.toSet());
-
-    Optional<PantsSourceType> topRankedType = Arrays.stream(PantsSourceType.values())
-      .filter(allTypes::contains)
-      .findFirst();
-
-    if (topRankedType.isPresent()) {
-      return topRankedType.get();
-    }
-    return PantsSourceType.SOURCE;
+    return getAddressInfoProperties().mySourcesType;
   }
 
   public boolean isJarLibrary() {
-    return getAddressInfos().stream().allMatch(TargetAddressInfo::isJarLibrary);
+    return getAddressInfoProperties().myIsJarLibrary;
   }
 
   public boolean isScalaTarget() {
-    return getAddressInfos().stream().anyMatch(TargetAddressInfo::isScala) ||
-           // TODO(yic): have Pants export `pants_target_type` correctly
-           // because `thrift-scala` also has the type `java_thrift_library`
-           getAddressInfos().stream().anyMatch(s -> s.getTargetAddress().endsWith("-scala"));
+    return getAddressInfoProperties().myIsScalaTarget;
   }
 
   public boolean isPythonTarget() {
-    return getAddressInfos().stream().anyMatch(TargetAddressInfo::isPython);
+    return getAddressInfoProperties().myIsPythonTarget;
+  }
+
+  @NotNull
+  private AddressInfoProperties getAddressInfoProperties() {
+    AddressInfoProperties properties = myAddressInfoProperties;
+    if (properties == null) {
+      properties = new AddressInfoProperties(addressInfos);
+      myAddressInfoProperties = properties;
+    }
+    return properties;
   }
 
   public boolean dependOn(@NotNull String targetName) {
@@ -174,11 +203,12 @@ public class TargetInfo {
 
   public void addDependency(@NotNull String targetName) {
     if (targets.isEmpty()) {
-      targets = new HashSet<>(Collections.singletonList(targetName));
+      targets = newSymbolSet(Collections.singleton(targetName));
     }
     else {
       targets.add(targetName);
     }
+    onDependencyAdded(targetName);
   }
 
   public boolean removeDependency(@NotNull String targetName) {
@@ -191,6 +221,24 @@ public class TargetInfo {
     }
   }
 
+  void attachTo(@NotNull ProjectInfo owner, @NotNull String name) {
+    myOwner = owner;
+    myOwnerName = name;
+  }
+
+  void detachFrom(@NotNull ProjectInfo owner, @NotNull String name) {
+    if (myOwner == owner && name.equals(myOwnerName)) {
+      myOwner = null;
+      myOwnerName = null;
+    }
+  }
+
+  private void onDependencyAdded(@NotNull String targetName) {
+    if (myOwner != null && myOwnerName != null) {
+      myOwner.indexDependency(myOwnerName, targetName);
+    }
+  }
+
   public TargetInfo union(@NotNull TargetInfo other) {
     return new TargetInfo(
       ContainerUtil.union(getAddressInfos(), other.getAddressInfos()),
@@ -201,6 +249,74 @@ public class TargetInfo {
     );
   }
 
+  /**
+   * Collects the union of many targets into one set per field, unlike chaining {@link #union},
+   * which copies everything collected so far on every step.
+   */
+  public static class Accumulator {
+    private final Set<TargetAddressInfo> myAddressInfos = new HashSet<>();
+    private final Set<String> myTargets = new HashSet<>();
+    private final Set<String> myLibraries = new HashSet<>();
+    private final Set<String> myExcludes = new HashSet<>();
+    private final Set<ContentRoot> myRoots = new HashSet<>();
+    @Nullable
+    private SymbolTable mySymbols = null;
+
+    @NotNull
+    public Accumulator add(@NotNull TargetInfo info) {
+      if (mySymbols == null) {
+        mySymbols = info.mySymbols;
+      }
+      myAddressInfos.addAll(info.getAddressInfos());
+      myTargets.addAll(info.getTargets());
+      myLibraries.addAll(info.getLibraries());
+      myExcludes.addAll(info.getExcludes());
+      myRoots.addAll(info.getRoots());
+      return this;
+    }
+
+    @NotNull
+    public TargetInfo build() {
+      return new TargetInfo(mySymbols, myAddressInfos, myTargets, myLibraries, myExcludes, myRoots);
+    }
+  }
+
+  private static class AddressInfoProperties {
+    private final boolean myIsTest;
+    private final PantsSourceType mySourcesType;
+    private final boolean myIsJarLibrary;
+    private final boolean myIsScalaTarget;
+    private final boolean myIsPythonTarget;
+
+    private AddressInfoProperties(@NotNull Set<TargetAddressInfo> addressInfos) {
+      final Set<PantsSourceType> allTypes = EnumSet.noneOf(PantsSourceType.class);
+      boolean isJarLibrary = true;
+      boolean isScala = false;
+      boolean isPython = false;
+      for (TargetAddressInfo info : addressInfos) {
+        allTypes.add(PantsUtil.getSourceTypeForTargetType(info.getTargetType(), info.isSynthetic()));
+        isJarLibrary &= info.isJarLibrary();
+        isScala |= info.isScala();
+        isPython |= info.isPython();
+      }
+      myIsTest = allTypes.stream().anyMatch(type -> type.toExternalSystemSourceType().isTest());
+      // In the case where multiple targets get combined into one module,
+      // the type of common module should be in the order of
+      // source -> test source -> resource -> test resources. (like Ranked Value in Pants options)
+      // e.g. if source and resources get combined, the common module should be source type.
+      mySourcesType = Arrays.stream(PantsSourceType.values())
+        .filter(allTypes::contains)
+        .findFirst()
+        .orElse(PantsSourceType.SOURCE);
+      myIsJarLibrary = isJarLibrary;
+      myIsScalaTarget = isScala ||
+                        // TODO(yic): have Pants export `pants_target_type` correctly
+                        // because `thrift-scala` also has the type `java_thrift_library`
+                        addressInfos.stream().anyMatch(s -> s.getTargetAddress().endsWith("-scala"));
+      myIsPythonTarget = isPython;
+    }
+  }
+
   @Override
   public String toString() {
     return "TargetInfo{" +
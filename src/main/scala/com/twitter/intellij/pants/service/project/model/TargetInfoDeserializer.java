@@ -3,66 +3,180 @@
 
 package com.twitter.intellij.pants.service.project.model;
 
-import com.google.common.collect.Iterators;
-import com.google.gson.*;
-import com.intellij.util.Function;
-import com.intellij.util.containers.ContainerUtil;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.twitter.intellij.pants.model.Globs;
 import com.twitter.intellij.pants.model.TargetAddressInfo;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class TargetInfoDeserializer implements JsonDeserializer<TargetInfo> {
-  public static TargetInfoDeserializer INSTANCE = new TargetInfoDeserializer();
+/**
+ * Reads a target entry of `pants export` straight from the token stream,
+ * so no intermediate json tree is built for the (potentially huge) export output.
+ * Addresses, library ids and target types are shared through the {@link SymbolTable} of the export.
+ */
+public class TargetInfoDeserializer extends TypeAdapter<TargetInfo> {
+  private final SymbolTable mySymbols;
+
+  TargetInfoDeserializer(@NotNull SymbolTable symbols) {
+    mySymbols = symbols;
+  }
 
   @Override
-  public TargetInfo deserialize(JsonElement element, Type type, final JsonDeserializationContext context) throws JsonParseException {
-    final JsonObject object = element.getAsJsonObject();
-    final List<String> targets = getStringListField(object, "targets");
-    final List<String> libraries = getStringListField(object, "libraries");
-    final List<String> excludes = getStringListField(object, "excludes");
-    final List<ContentRoot> contentRoots = getFieldAsList(
-      object.getAsJsonArray("roots"),
-      new Function<JsonElement, ContentRoot>() {
-        @Override
-        public ContentRoot fun(JsonElement element) {
-          return context.deserialize(element, ContentRoot.class);
-        }
+  public TargetInfo read(JsonReader in) throws IOException {
+    final Set<String> targets = new HashSet<>();
+    final Set<String> libraries = new HashSet<>();
+    final Set<String> excludes = new HashSet<>();
+    final Set<ContentRoot> contentRoots = new HashSet<>();
+    final TargetAddressInfo addressInfo = new TargetAddressInfo();
+
+    in.beginObject();
+    while (in.hasNext()) {
+      final String name = in.nextName();
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        continue;
       }
-    );
-    final TargetAddressInfo addressInfo = context.deserialize(element, TargetAddressInfo.class);
+      switch (name) {
+        case "targets":
+          readSymbols(in, targets);
+          break;
+        case "libraries":
+          readSymbols(in, libraries);
+          break;
+        case "excludes":
+          readSymbols(in, excludes);
+          break;
+        case "roots":
+          readContentRoots(in, contentRoots);
+          break;
+        case "target_type":
+          addressInfo.setTargetType(mySymbols.intern(in.nextString()));
+          break;
+        case "pants_target_type":
+          addressInfo.setPantsTargetType(mySymbols.intern(in.nextString()));
+          break;
+        case "globs":
+          addressInfo.setGlobs(readGlobs(in));
+          break;
+        case "is_synthetic":
+          addressInfo.setIsSynthetic(in.nextBoolean());
+          break;
+        case "is_target_root":
+          addressInfo.setIsTargetRoot(in.nextBoolean());
+          break;
+        case "id":
+          addressInfo.setId(mySymbols.intern(in.nextString()));
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
     return new TargetInfo(
+      mySymbols,
       new HashSet<>(Collections.singleton(addressInfo)),
-      new HashSet<>(targets),
-      new HashSet<>(libraries),
-      new HashSet<>(excludes),
-      new HashSet<>(contentRoots)
+      targets,
+      libraries,
+      excludes,
+      contentRoots
     );
   }
 
-  @NotNull
-  private List<String> getStringListField(JsonObject object, String memberName) {
-    if (!object.has(memberName)) {
-      return Collections.emptyList();
+  @Override
+  public void write(JsonWriter out, TargetInfo value) {
+    throw new UnsupportedOperationException("TargetInfo is never serialized to json");
+  }
+
+  private void readSymbols(@NotNull JsonReader in, @NotNull Collection<String> result) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      final String value = mySymbols.intern(nextStringOrNull(in));
+      if (value != null) {
+        result.add(value);
+      }
+    }
+    in.endArray();
+  }
+
+  private static void readStrings(@NotNull JsonReader in, @NotNull Collection<String> result) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      final String value = nextStringOrNull(in);
+      if (value != null) {
+        result.add(value);
+      }
     }
-    return getFieldAsList(
-      object.getAsJsonArray(memberName),
-      new Function<JsonElement, String>() {
-        @Override
-        public String fun(JsonElement element) {
-          return element.getAsString();
+    in.endArray();
+  }
+
+  private void readContentRoots(@NotNull JsonReader in, @NotNull Collection<ContentRoot> result) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        continue;
+      }
+      String sourceRoot = null;
+      String packagePrefix = "";
+      in.beginObject();
+      while (in.hasNext()) {
+        final String name = in.nextName();
+        if ("source_root".equals(name)) {
+          sourceRoot = mySymbols.intern(nextStringOrNull(in));
+        }
+        else if ("package_prefix".equals(name)) {
+          final String value = nextStringOrNull(in);
+          packagePrefix = value != null ? value : "";
+        }
+        else {
+          in.skipValue();
         }
       }
-    );
+      in.endObject();
+      if (sourceRoot != null) {
+        result.add(new ContentRoot(sourceRoot, packagePrefix));
+      }
+    }
+    in.endArray();
   }
 
-  private <T> List<T> getFieldAsList(JsonArray jsonArray, Function<JsonElement, T> fun) {
-    return ContainerUtil.mapNotNull(
-      Iterators.toArray(jsonArray.iterator(), JsonElement.class),
-      fun
-    );
+  @NotNull
+  private static Globs readGlobs(@NotNull JsonReader in) throws IOException {
+    final Globs globs = new Globs();
+    in.beginObject();
+    while (in.hasNext()) {
+      final String name = in.nextName();
+      if ("globs".equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+        final List<String> patterns = new ArrayList<>();
+        readStrings(in, patterns);
+        globs.setGlobs(patterns);
+      }
+      else {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+    return globs;
+  }
+
+  @Nullable
+  static String nextStringOrNull(@NotNull JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
   }
 }
@@ -4,26 +4,42 @@
 package com.twitter.intellij.pants.service.project.model.graph;
 
 
-import com.google.common.collect.Queues;
-import com.google.common.collect.Sets;
 import com.intellij.openapi.diagnostic.Logger;
 import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Nodes are numbered in the iteration order of the target map, and the dependencies of node `i` are stored
+ * in `myDependencies[myOffsets[i]]` up to `myDependencies[myOffsets[i + 1]]` (compressed sparse rows),
+ * so both construction and traversal are linear in the size of the graph.
+ */
 public class BuildGraph {
   public static final String ERROR_ORPHANED_NODE = "Missing link in build graph. Orphan nodes: %s";
   public static final String ERROR_NO_TARGET_ROOT =
     "No target roots found in build graph. Please make sure Pants export version >= 1.0.9";
 
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
   private static Logger logger = Logger.getInstance("#" + BuildGraph.class.getName());
-  private Set<BuildGraphNode> allNodes = new HashSet<>();
+
+  private final BuildGraphNode[] myNodes;
+  private final Map<String, Integer> myNodeIds;
+  private final boolean[] myIsAlias;
+  private final int[] myOffsets;
+  private final int[] myDependencies;
+
+  // Computed on first use.
+  private int[] myDepths = null;
+  private int[] myLevels = null;
 
   public class OrphanedNodeException extends PantsException {
 
@@ -40,106 +56,205 @@ public class BuildGraph {
   }
 
   public BuildGraph(Map<String, TargetInfo> targets) {
-    allNodes.addAll(
-      targets
-        .entrySet()
-        .stream()
-        .map(BuildGraphNode::new)
-        .collect(Collectors.toList())
-    );
-
-    // then process their relationships, dependencies and dependees
-    for (BuildGraphNode node : allNodes) {
-      Set<String> deps = node.getTargetInfo().getTargets();
-      for (String dep : deps) {
-        // FIXME: getNode is currently linear search.
-        Optional<BuildGraphNode> depNode = getNode(dep);
-        if (depNode.isPresent()) {
-          node.addDependency(depNode.get());
-          depNode.get().addDepeedee(node);
-        }
-        else {
-          logger.error(String.format("No build graph node found for %s", dep));
-        }
-      }
+    final int size = targets.size();
+    myNodes = new BuildGraphNode[size];
+    myNodeIds = new HashMap<>(size * 4 / 3 + 1);
+    myIsAlias = new boolean[size];
+    int edgesUpperBound = 0;
+    for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+      final int id = myNodeIds.size();
+      myNodes[id] = new BuildGraphNode(this, id, entry);
+      myNodeIds.put(entry.getKey(), id);
+      myIsAlias[id] = myNodes[id].isAliasTarget();
+      edgesUpperBound += entry.getValue().getTargets().size();
     }
-  }
 
-  // FIXME: not the most efficient way to find max depth yet.
-  public int getMaxDepth() {
-    int depth = 0;
-    Set<BuildGraphNode> currentNodeSet = getTargetRoots();
-
-    while (true) {
-      Set<BuildGraphNode> dependencyNodes = currentNodeSet.stream()
-        .map(BuildGraphNode::getDependencies)
-        .flatMap(Set::stream)
-        .collect(Collectors.toSet());
-
-      int sizeBeforeAdd = currentNodeSet.size();
-      currentNodeSet.addAll(dependencyNodes);
-      if (currentNodeSet.size() == sizeBeforeAdd) {
-        if (currentNodeSet.size() == allNodes.size()) {
-          return depth;
+    // then process their relationships
+    myOffsets = new int[size + 1];
+    int[] dependencies = new int[edgesUpperBound];
+    int edges = 0;
+    for (int id = 0; id < size; id++) {
+      myOffsets[id] = edges;
+      for (String dep : myNodes[id].getTargetInfo().getTargets()) {
+        final Integer depId = myNodeIds.get(dep);
+        if (depId != null) {
+          dependencies[edges++] = depId;
         }
         else {
-          Set<BuildGraphNode> orphanNodes = Sets.difference(allNodes, currentNodeSet);
-          throw new OrphanedNodeException(String.format(ERROR_ORPHANED_NODE, orphanNodes));
+          logger.error(String.format("No build graph node found for %s", dep));
         }
       }
-      depth++;
     }
+    myOffsets[size] = edges;
+    myDependencies = edges == edgesUpperBound ? dependencies : Arrays.copyOf(dependencies, edges);
   }
 
-  private Set<BuildGraphNode> expandAliasTargets(Set<BuildGraphNode> initialTargets) {
-    Set<BuildGraphNode> results = Sets.newHashSet();
-    ArrayDeque<BuildGraphNode> q = Queues.newArrayDeque(initialTargets);
-    while (!q.isEmpty()) {
-      BuildGraphNode curr = q.pop();
-      if (curr.isAliasTarget()) {
-        q.addAll(curr.getDependencies());
+  public int getMaxDepth() {
+    final int[] depths = getDepths();
+    int maxDepth = 0;
+    final List<BuildGraphNode> orphanNodes = new ArrayList<>();
+    for (int id = 0; id < myNodes.length; id++) {
+      if (depths[id] == UNREACHABLE) {
+        orphanNodes.add(myNodes[id]);
       }
       else {
-        results.add(curr);
+        maxDepth = Math.max(maxDepth, depths[id]);
       }
     }
-    return results;
+    if (!orphanNodes.isEmpty()) {
+      throw new OrphanedNodeException(String.format(ERROR_ORPHANED_NODE, orphanNodes));
+    }
+    return maxDepth;
   }
 
   // level 0 - target roots
   // level 1 - target roots + direct deps
   // ...
+  // The dependencies of an alias target are always included along with it.
   public Set<BuildGraphNode> getNodesUpToLevel(int level) {
-    // Holds the current scope of build graph.
-    Set<BuildGraphNode> results = getTargetRoots();
-    results.addAll(expandAliasTargets(results));
-
-    for (int i = 0; i < level; i++) {
-      Set<BuildGraphNode> dependencies = new HashSet<>();
-      for (BuildGraphNode node : results) {
-        dependencies.addAll(node.getDependencies());
-      }
-      results.addAll(dependencies);
-      results.addAll(expandAliasTargets(dependencies));
-      // All nodes are in, no need to iterate more.
-      if (results.size() == allNodes.size()) {
-        break;
+    final int[] levels = getLevels();
+    final Set<BuildGraphNode> results = new HashSet<>();
+    for (int id = 0; id < myNodes.length; id++) {
+      if (levels[id] <= level) {
+        results.add(myNodes[id]);
       }
     }
     return results;
   }
 
-  private Set<BuildGraphNode> getTargetRoots() {
-    Set<BuildGraphNode> targetRoots = allNodes.stream().filter(BuildGraphNode::isTargetRoot).collect(Collectors.toSet());
-    if (targetRoots.isEmpty()) {
+  @NotNull
+  Set<BuildGraphNode> getDependencies(int id) {
+    final Set<BuildGraphNode> result = new HashSet<>();
+    for (int i = myOffsets[id]; i < myOffsets[id + 1]; i++) {
+      result.add(myNodes[myDependencies[i]]);
+    }
+    return result;
+  }
+
+  /**
+   * Breadth first distances from the target roots, {@link #UNREACHABLE} for orphans.
+   */
+  @NotNull
+  private int[] getDepths() {
+    if (myDepths != null) {
+      return myDepths;
+    }
+    final int[] depths = new int[myNodes.length];
+    Arrays.fill(depths, UNREACHABLE);
+    final int[] queue = new int[myNodes.length];
+    int tail = 0;
+    for (int root : getTargetRoots()) {
+      depths[root] = 0;
+      queue[tail++] = root;
+    }
+    for (int head = 0; head < tail; head++) {
+      final int id = queue[head];
+      for (int i = myOffsets[id]; i < myOffsets[id + 1]; i++) {
+        final int dep = myDependencies[i];
+        if (depths[dep] == UNREACHABLE) {
+          depths[dep] = depths[id] + 1;
+          queue[tail++] = dep;
+        }
+      }
+    }
+    myDepths = depths;
+    return depths;
+  }
+
+  /**
+   * The lowest level at which {@link #getNodesUpToLevel} includes each node.
+   * <p>
+   * A node enters at its breadth first distance, except that the non-alias targets reachable from an alias
+   * through a chain of aliases enter at the same level as that alias, while the aliases in between don't.
+   * This is a 0-1 breadth first search over two states per node:
+   * state `id` is the node entering as a root or a dependency, state `size + id` is the node being reached
+   * through an alias chain (for an alias) or being included at all (for a non-alias).
+   */
+  @NotNull
+  private int[] getLevels() {
+    if (myLevels != null) {
+      return myLevels;
+    }
+    final int size = myNodes.length;
+    final int[] distances = new int[2 * size];
+    Arrays.fill(distances, UNREACHABLE);
+    IntStack current = new IntStack();
+    for (int root : getTargetRoots()) {
+      distances[root] = 0;
+      current.push(root);
+    }
+    for (int level = 0; !current.isEmpty(); level++) {
+      final IntStack next = new IntStack();
+      while (!current.isEmpty()) {
+        final int state = current.pop();
+        if (distances[state] != level) {
+          // Reached at a lower level after it was scheduled.
+          continue;
+        }
+        final int id = state < size ? state : state - size;
+        if (state < size) {
+          relax(distances, size + id, level, current);
+          if (!myIsAlias[id]) {
+            continue;
+          }
+        }
+        for (int i = myOffsets[id]; i < myOffsets[id + 1]; i++) {
+          final int dep = myDependencies[i];
+          if (state >= size && myIsAlias[id]) {
+            relax(distances, size + dep, level, current);
+          }
+          else {
+            relax(distances, dep, level + 1, next);
+          }
+        }
+      }
+      current = next;
+    }
+
+    final int[] levels = new int[size];
+    for (int id = 0; id < size; id++) {
+      levels[id] = myIsAlias[id] ? distances[id] : distances[size + id];
+    }
+    myLevels = levels;
+    return levels;
+  }
+
+  private static void relax(@NotNull int[] distances, int state, int distance, @NotNull IntStack stack) {
+    if (distance < distances[state]) {
+      distances[state] = distance;
+      stack.push(state);
+    }
+  }
+
+  @NotNull
+  private int[] getTargetRoots() {
+    final int[] roots = Arrays.stream(myNodes)
+      .filter(BuildGraphNode::isTargetRoot)
+      .mapToInt(BuildGraphNode::getId)
+      .toArray();
+    if (roots.length == 0) {
       throw new NoTargetRootException(ERROR_NO_TARGET_ROOT);
     }
-    return targetRoots;
+    return roots;
   }
 
-  private Optional<BuildGraphNode> getNode(String targetAddress) {
-    return allNodes.stream()
-      .filter(n -> n.getAddress().equals(targetAddress))
-      .findFirst();
+  private static class IntStack {
+    private int[] myElements = new int[16];
+    private int mySize = 0;
+
+    private void push(int element) {
+      if (mySize == myElements.length) {
+        myElements = Arrays.copyOf(myElements, mySize * 2);
+      }
+      myElements[mySize++] = element;
+    }
+
+    private int pop() {
+      return myElements[--mySize];
+    }
+
+    private boolean isEmpty() {
+      return mySize == 0;
+    }
   }
 }
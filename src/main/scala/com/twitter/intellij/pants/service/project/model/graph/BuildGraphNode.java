@@ -6,7 +6,6 @@ package com.twitter.intellij.pants.service.project.model.graph;
 import com.twitter.intellij.pants.model.TargetAddressInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -16,6 +15,8 @@ import java.util.stream.Collectors;
  * BuildGraphNode and Module are one to one relationship.
  */
 public class BuildGraphNode {
+  private final BuildGraph myGraph;
+  private final int myId;
   private TargetInfo myTargetInfo;
 
   public String getAddress() {
@@ -25,17 +26,20 @@ public class BuildGraphNode {
   private String address; // could be synthetic and tweaked by modifiers.
 
   public Set<BuildGraphNode> getDependencies() {
-    return myDependencies;
+    return myGraph.getDependencies(myId);
   }
 
-  private Set<BuildGraphNode> myDependencies = new HashSet<>();
-  private Set<BuildGraphNode> myDependees = new HashSet<>();
+  int getId() {
+    return myId;
+  }
 
   public TargetInfo getTargetInfo() {
     return myTargetInfo;
   }
 
-  public BuildGraphNode(Map.Entry<String, TargetInfo> entry) {
+  BuildGraphNode(BuildGraph graph, int id, Map.Entry<String, TargetInfo> entry) {
+    myGraph = graph;
+    myId = id;
     address = entry.getKey();
     myTargetInfo = entry.getValue();
   }
@@ -52,14 +56,6 @@ public class BuildGraphNode {
     return myTargetInfo.getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetAlias);
   }
 
-  public void addDependency(BuildGraphNode node) {
-    myDependencies.add(node);
-  }
-
-  public void addDepeedee(BuildGraphNode node) {
-    myDependees.add(node);
-  }
-
   @Override
   public int hashCode() {
     return Objects.hash(myTargetInfo);
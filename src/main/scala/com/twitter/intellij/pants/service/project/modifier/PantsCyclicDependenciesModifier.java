@@ -5,6 +5,7 @@ package com.twitter.intellij.pants.service.project.modifier;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.PantsException;
@@ -14,50 +15,136 @@ import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
+/**
+ * Collapses every strongly connected component of the target graph, i.e. every dependency cycle, into one target.
+ * Components are found with Tarjan's algorithm, so the whole pass is linear in the size of the graph.
+ */
 public class PantsCyclicDependenciesModifier implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
-    final Set<Map.Entry<String, TargetInfo>> originalEntries =
-      new HashSet<>(projectInfo.getTargets().entrySet());
-    for (Map.Entry<String, TargetInfo> nameAndInfo : originalEntries) {
-      final String targetName = nameAndInfo.getKey();
-      final TargetInfo targetInfo = nameAndInfo.getValue();
-      if (!projectInfo.getTargets().containsKey(targetName)) {
-        // already removed
-        continue;
+    for (Map.Entry<String, TargetInfo> nameAndInfo : projectInfo.getTargets().entrySet()) {
+      if (nameAndInfo.getValue().dependOn(nameAndInfo.getKey())) {
+        throw new PantsException(String.format("Self cyclic dependency found %s", nameAndInfo.getKey()));
       }
-      for (String dependencyTargetName : targetInfo.getTargets()) {
-        TargetInfo dependencyTargetInfo = projectInfo.getTarget(dependencyTargetName);
-        if (dependencyTargetInfo != null && dependencyTargetInfo.dependOn(targetName)) {
+    }
 
-          if (targetName.equals(dependencyTargetName)) {
-            throw new PantsException(String.format("Self cyclic dependency found %s", targetName));
-          }
+    for (List<String> component : findCycles(projectInfo.getTargets())) {
+      log.info(String.format("Found cyclic dependency between %s", StringUtil.join(component, ", ")));
 
-          log.info(String.format("Found cyclic dependency between %s and %s", targetName, dependencyTargetName));
+      final String combinedTargetName = combinedTargetsName(ArrayUtil.toStringArray(component));
+      final TargetInfo combinedInfo = combinedTargetInfo(projectInfo, component);
+      projectInfo.addTarget(combinedTargetName, combinedInfo);
+      for (String targetName : component) {
+        projectInfo.replaceDependency(targetName, combinedTargetName);
+        projectInfo.removeTarget(targetName);
+      }
+    }
+  }
 
-          final String combinedTargetName = combinedTargetsName(targetName, dependencyTargetName);
-          final TargetInfo combinedInfo = targetInfo.union(dependencyTargetInfo);
-          combinedInfo.removeDependency(targetName);
-          combinedInfo.removeDependency(dependencyTargetName);
-          projectInfo.addTarget(combinedTargetName, combinedInfo);
+  @NotNull
+  private static TargetInfo combinedTargetInfo(@NotNull ProjectInfo projectInfo, @NotNull List<String> component) {
+    final TargetInfo.Accumulator accumulator = new TargetInfo.Accumulator();
+    for (String targetName : component) {
+      accumulator.add(projectInfo.getTarget(targetName));
+    }
+    final TargetInfo combinedInfo = accumulator.build();
+    combinedInfo.getTargets().removeAll(component);
+    return combinedInfo;
+  }
 
-          projectInfo.replaceDependency(targetName, combinedTargetName);
-          projectInfo.removeTarget(targetName);
+  /**
+   * Iterative Tarjan's algorithm, so deep dependency chains can't overflow the stack.
+   *
+   * @return the strongly connected components with more than one target, each sorted by name.
+   */
+  @NotNull
+  static List<List<String>> findCycles(@NotNull Map<String, TargetInfo> targets) {
+    final String[] names = ArrayUtil.toStringArray(targets.keySet());
+    Arrays.sort(names);
+    final Map<String, Integer> ids = new HashMap<>(names.length * 4 / 3 + 1);
+    for (int id = 0; id < names.length; id++) {
+      ids.put(names[id], id);
+    }
+    final int[][] dependencies = new int[names.length][];
+    for (int id = 0; id < names.length; id++) {
+      dependencies[id] = targets.get(names[id]).getTargets().stream()
+        .map(ids::get)
+        .filter(Objects::nonNull)
+        .mapToInt(Integer::intValue)
+        .toArray();
+    }
 
-          projectInfo.replaceDependency(dependencyTargetName, combinedTargetName);
-          projectInfo.removeTarget(dependencyTargetName);
+    final int[] index = new int[names.length];
+    final int[] lowLink = new int[names.length];
+    final boolean[] onStack = new boolean[names.length];
+    Arrays.fill(index, -1);
+    final int[] componentStack = new int[names.length];
+    int componentStackSize = 0;
+    final int[] callStack = new int[names.length];
+    final int[] nextEdge = new int[names.length];
+    int nextIndex = 0;
+    final List<List<String>> result = new ArrayList<>();
+
+    for (int start = 0; start < names.length; start++) {
+      if (index[start] != -1) {
+        continue;
+      }
+      int callStackSize = 0;
+      callStack[callStackSize++] = start;
+      index[start] = lowLink[start] = nextIndex++;
+      componentStack[componentStackSize++] = start;
+      onStack[start] = true;
+
+      while (callStackSize > 0) {
+        final int node = callStack[callStackSize - 1];
+        if (nextEdge[node] < dependencies[node].length) {
+          final int dependency = dependencies[node][nextEdge[node]++];
+          if (index[dependency] == -1) {
+            index[dependency] = lowLink[dependency] = nextIndex++;
+            componentStack[componentStackSize++] = dependency;
+            onStack[dependency] = true;
+            callStack[callStackSize++] = dependency;
+          }
+          else if (onStack[dependency]) {
+            lowLink[node] = Math.min(lowLink[node], index[dependency]);
+          }
+          continue;
+        }
+
+        callStackSize--;
+        if (callStackSize > 0) {
+          final int parent = callStack[callStackSize - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+        }
+        if (lowLink[node] == index[node]) {
+          final List<String> component = new ArrayList<>();
+          int member;
+          do {
+            member = componentStack[--componentStackSize];
+            onStack[member] = false;
+            component.add(names[member]);
+          }
+          while (member != node);
+          if (component.size() > 1) {
+            Collections.sort(component);
+            result.add(component);
+          }
         }
       }
     }
+    return result;
   }
 
   @NotNull
-  private String combinedTargetsName(String... targetNames) {
+  private static String combinedTargetsName(String... targetNames) {
     assert targetNames.length > 0;
     String commonPrefix = targetNames[0];
     for (String name : targetNames) {
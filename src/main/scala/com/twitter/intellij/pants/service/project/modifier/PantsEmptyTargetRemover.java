@@ -10,24 +10,37 @@ import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Removes empty targets, and then the targets that only became empty because of that, e.g. chains of aggregates.
+ * Emptiness is propagated from a worklist to the dependees, so every target is looked at a bounded number of times.
+ */
 public class PantsEmptyTargetRemover implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
-    final List<String> emptyTargets = new ArrayList<>();
-    do {
-      emptyTargets.clear();
-      for (Map.Entry<String, TargetInfo> targetInfoEntry : projectInfo.getTargets().entrySet()) {
-        final String targetName = targetInfoEntry.getKey();
-        final TargetInfo targetInfo = targetInfoEntry.getValue();
-        if (targetInfo.isEmpty()) {
-          emptyTargets.add(targetName);
+    final Deque<String> emptyTargets = new ArrayDeque<>();
+    for (Map.Entry<String, TargetInfo> targetInfoEntry : projectInfo.getTargets().entrySet()) {
+      if (targetInfoEntry.getValue().isEmpty()) {
+        emptyTargets.add(targetInfoEntry.getKey());
+      }
+    }
+    while (!emptyTargets.isEmpty()) {
+      final String targetName = emptyTargets.poll();
+      if (projectInfo.getTarget(targetName) == null) {
+        continue;
+      }
+      final Set<String> dependees = projectInfo.getDependees(targetName);
+      projectInfo.removeTarget(targetName);
+      for (String dependee : dependees) {
+        final TargetInfo dependeeInfo = projectInfo.getTarget(dependee);
+        if (dependeeInfo != null && dependeeInfo.isEmpty()) {
+          emptyTargets.add(dependee);
         }
       }
-      projectInfo.removeTargets(emptyTargets);
-    } while (!emptyTargets.isEmpty());
+    }
   }
 }
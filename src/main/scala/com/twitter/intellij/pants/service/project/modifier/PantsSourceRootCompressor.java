@@ -5,6 +5,7 @@ package com.twitter.intellij.pants.service.project.modifier;
 
 import com.google.common.collect.Sets;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.io.FileUtil;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
 import com.twitter.intellij.pants.service.project.PantsProjectInfoModifierExtension;
@@ -16,21 +17,28 @@ import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
+    final DirectoryListings listings = new DirectoryListings();
     for (TargetInfo info : projectInfo.getTargets().values()) {
-      info.setRoots(compressRootsIfPossible(info.getRoots()));
+      info.setRoots(compressRootsIfPossible(info.getRoots(), listings));
     }
   }
 
   @NotNull
-  private Set<ContentRoot> compressRootsIfPossible(@NotNull Set<ContentRoot> roots) {
+  private Set<ContentRoot> compressRootsIfPossible(@NotNull Set<ContentRoot> roots, @NotNull DirectoryListings listings) {
     final Set<String> packageRoots = roots.stream().map(ContentRoot::getPackageRoot).collect(Collectors.toSet());
     if (packageRoots.size() != 1) {
       return roots;
@@ -38,7 +46,7 @@ public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtens
     final String packageRoot = packageRoots.iterator().next();
     final Set<File> sourceRoots = roots.stream().map(ContentRoot::getRawSourceRoot).map(File::new).collect(Collectors.toSet());
 
-    if (folderContainsOnlyRoots(new File(packageRoot), sourceRoots)) {
+    if (listings.folderContainsOnlyRoots(new File(packageRoot), sourceRoots)) {
       return Collections.singleton(new ContentRoot(packageRoot, ""));
     }
     Set<File> ancestorContentRootPaths = findAncestors(sourceRoots);
@@ -75,57 +83,92 @@ public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtens
    * @return the top ancestors among the candidates
    */
   protected static Set<File> findAncestors(Set<File> candidates) {
-    Set<File> results = Sets.newHashSet();
-    results.addAll(candidates);
-
-    // TODO(yic): the algorithm is n^2, but typically a target would not have more than 5 content roots, and most of the time it only has 1.
-    // Like bubble sort, n^2 is not always bad.
-    for (File x : candidates) {
-      for (File y : candidates) {
-        if (FileUtil.filesEqual(x, y)) {
-          continue;
-        }
-        if (isYSubDirectoryOfX(x, y)) {
-          results.remove(y);
-        }
+    // Every candidate only looks up its own parents, so this is linear in the total depth of the candidates.
+    final Set<String> candidatePaths = candidates.stream().map(PantsSourceRootCompressor::getPathKey).collect(Collectors.toSet());
+    final Set<File> results = Sets.newHashSet();
+    for (File candidate : candidates) {
+      if (!hasAncestorAmong(candidate, candidatePaths)) {
+        results.add(candidate);
       }
     }
     return results;
   }
 
-  /**
-   * Checks, whether the child directory is a subdirectory of the base
-   * directory.
-   *
-   * @param base  the base directory.
-   * @param child the suspected child directory.
-   * @return true, if the child is a subdirectory of the base directory.
-   */
-  public static boolean isYSubDirectoryOfX(File base, File child) {
-    File parentFile = child;
-    while (parentFile != null) {
-      if (FileUtil.filesEqual(base, parentFile)) {
+  private static boolean hasAncestorAmong(@NotNull File file, @NotNull Set<String> paths) {
+    for (File parent = file.getParentFile(); parent != null; parent = parent.getParentFile()) {
+      if (paths.contains(getPathKey(parent))) {
         return true;
       }
-      parentFile = parentFile.getParentFile();
     }
     return false;
   }
 
-  private boolean folderContainsOnlyRoots(@NotNull File root, Set<File> foldersWithSources) {
-    final File[] files = root.listFiles();
-    if (files == null) {
-      return false;
-    }
-    for (File file : files) {
-      if (file.isFile() && !PantsUtil.isBUILDFileName(file.getName()) && !foldersWithSources.contains(root)) {
-        return false;
+  /**
+   * @return a key that is equal for two files iff {@link FileUtil#filesEqual} considers them equal.
+   */
+  @NotNull
+  private static String getPathKey(@NotNull File file) {
+    final String path = FileUtil.toCanonicalPath(file.getPath());
+    return SystemInfo.isFileSystemCaseSensitive ? path : path.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Lists every directory at most once per import, since targets in the same package root keep asking about
+   * the same directories.
+   */
+  private static class DirectoryListings {
+    private static final Listing UNREADABLE = new Listing(false, new File[0]);
+
+    private final Map<File, Listing> myListings = new HashMap<>();
+
+    private static class Listing {
+      private final boolean myHasFiles;
+      private final File[] mySubdirectories;
+
+      private Listing(boolean hasFiles, @NotNull File[] subdirectories) {
+        myHasFiles = hasFiles;
+        mySubdirectories = subdirectories;
       }
-      if (file.isDirectory() && !folderContainsOnlyRoots(file, foldersWithSources)) {
-        return false;
+    }
+
+    /**
+     * @return true if every file under the root, except for BUILD files, is directly in one of the given folders.
+     */
+    private boolean folderContainsOnlyRoots(@NotNull File root, Set<File> foldersWithSources) {
+      final Deque<File> folders = new ArrayDeque<>();
+      folders.push(root);
+      while (!folders.isEmpty()) {
+        final File folder = folders.pop();
+        final Listing listing = getListing(folder);
+        if (listing == UNREADABLE || (listing.myHasFiles && !foldersWithSources.contains(folder))) {
+          return false;
+        }
+        for (File subdirectory : listing.mySubdirectories) {
+          folders.push(subdirectory);
+        }
       }
+      return true;
     }
 
-    return true;
+    @NotNull
+    private Listing getListing(@NotNull File folder) {
+      return myListings.computeIfAbsent(folder, f -> {
+        final File[] files = f.listFiles();
+        if (files == null) {
+          return UNREADABLE;
+        }
+        boolean hasFiles = false;
+        final List<File> subdirectories = new ArrayList<>();
+        for (File file : files) {
+          if (file.isFile() && !PantsUtil.isBUILDFileName(file.getName())) {
+            hasFiles = true;
+          }
+          else if (file.isDirectory()) {
+            subdirectories.add(file);
+          }
+        }
+        return new Listing(hasFiles, subdirectories.toArray(new File[0]));
+      });
+    }
   }
 }
@@ -22,9 +22,20 @@ import com.twitter.intellij.pants.util.PantsConstants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 public class PantsLibrariesExtension implements PantsResolverExtension {
   @Override
@@ -35,37 +46,15 @@ public class PantsLibrariesExtension implements PantsResolverExtension {
     @NotNull Map<String, DataNode<ModuleData>> modules,
     @NotNull Optional<BuildGraph> buildGraph
   ) {
-    for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
-      final TargetInfo targetInfo = entry.getValue();
-
-      if (executor.getOptions().isImportSourceDepsAsJars()) {
-        if (targetInfo.isPythonTarget()) {
-          continue;
-        }
-      }
-      else if (!targetInfo.isJarLibrary()) {
-        continue;
-      }
+    final List<Map.Entry<String, TargetInfo>> jarTargets = projectInfo.getSortedTargets().stream()
+      .filter(entry -> hasLibraries(entry.getValue(), executor))
+      .collect(Collectors.toList());
+    final Map<String, LibraryInfo> libraries = resolveLibraries(projectInfo, jarTargets);
+    final Set<String> existingPaths = findExistingPaths(executor, libraries.values());
 
+    for (Map.Entry<String, TargetInfo> entry : jarTargets) {
       final String jarTarget = entry.getKey();
-      final LibraryData libraryData = new LibraryData(PantsConstants.SYSTEM_ID, jarTarget);
-
-      for (String libraryId : targetInfo.getLibraries()) {
-        final LibraryInfo libraryInfo = projectInfo.getLibraries(libraryId);
-        if (libraryInfo == null) {
-          LOG.debug("Couldn't find library " + libraryId);
-          continue;
-        }
-
-        addPathLoLibrary(libraryData, executor, LibraryPathType.BINARY, libraryInfo.getDefault());
-        addPathLoLibrary(libraryData, executor, LibraryPathType.SOURCE, libraryInfo.getSources());
-        addPathLoLibrary(libraryData, executor, LibraryPathType.DOC, libraryInfo.getJavadoc());
-
-        for (String otherLibraryInfo : libraryInfo.getJarsWithCustomClassifiers()) {
-          addPathLoLibrary(libraryData, executor, LibraryPathType.BINARY, otherLibraryInfo);
-        }
-      }
-
+      final LibraryData libraryData = createLibraryData(libraries, executor, existingPaths, jarTarget, entry.getValue());
       projectDataNode.createChild(ProjectKeys.LIBRARY, libraryData);
       final DataNode<ModuleData> moduleDataNode = modules.get(jarTarget);
       if (moduleDataNode == null) {
@@ -82,19 +71,117 @@ public class PantsLibrariesExtension implements PantsResolverExtension {
     }
   }
 
-  private void addPathLoLibrary(
-    @NotNull LibraryData libraryData,
+  private static boolean hasLibraries(@NotNull TargetInfo targetInfo, @NotNull PantsCompileOptionsExecutor executor) {
+    if (executor.getOptions().isImportSourceDepsAsJars()) {
+      return !targetInfo.isPythonTarget();
+    }
+    return targetInfo.isJarLibrary();
+  }
+
+  /**
+   * Looks up every library referenced by the targets once. A library that can't be found maps to null.
+   */
+  @NotNull
+  private static Map<String, LibraryInfo> resolveLibraries(
+    @NotNull ProjectInfo projectInfo,
+    @NotNull List<Map.Entry<String, TargetInfo>> jarTargets
+  ) {
+    final Map<String, LibraryInfo> result = new HashMap<>();
+    for (Map.Entry<String, TargetInfo> entry : jarTargets) {
+      for (String libraryId : entry.getValue().getLibraries()) {
+        if (!result.containsKey(libraryId)) {
+          result.put(libraryId, projectInfo.getLibraries(libraryId));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The same jar is usually referenced by many targets, and every stat can be a round trip on a network file system,
+   * so each distinct path is checked once, in parallel.
+   */
+  @NotNull
+  private static Set<String> findExistingPaths(
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull Collection<LibraryInfo> libraries
+  ) {
+    final Set<String> candidates = new LinkedHashSet<>();
+    for (LibraryInfo libraryInfo : libraries) {
+      if (libraryInfo != null) {
+        forEachPath(libraryInfo, (type, path) -> candidates.add(getAbsolutePath(executor, path)));
+      }
+    }
+
+    final List<String> paths = new ArrayList<>(candidates);
+    final List<Boolean> exists = ParallelResolver.map(paths, PantsLibrariesExtension::exists);
+    final Set<String> result = new HashSet<>();
+    for (int i = 0; i < paths.size(); i++) {
+      if (exists.get(i)) {
+        result.add(paths.get(i));
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static LibraryData createLibraryData(
+    @NotNull Map<String, LibraryInfo> libraries,
     @NotNull PantsCompileOptionsExecutor executor,
-    @NotNull LibraryPathType binary,
+    @NotNull Set<String> existingPaths,
+    @NotNull String jarTarget,
+    @NotNull TargetInfo targetInfo
+  ) {
+    final LibraryData libraryData = new LibraryData(PantsConstants.SYSTEM_ID, jarTarget);
+
+    for (String libraryId : targetInfo.getLibraries()) {
+      final LibraryInfo libraryInfo = libraries.get(libraryId);
+      if (libraryInfo == null) {
+        LOG.debug("Couldn't find library " + libraryId);
+        continue;
+      }
+
+      forEachPath(libraryInfo, (type, path) -> {
+        final String absolutePath = getAbsolutePath(executor, path);
+        if (existingPaths.contains(absolutePath)) {
+          libraryData.addPath(type, absolutePath);
+        }
+      });
+    }
+    return libraryData;
+  }
+
+  private static void forEachPath(@NotNull LibraryInfo libraryInfo, @NotNull BiConsumer<LibraryPathType, String> consumer) {
+    addPath(consumer, LibraryPathType.BINARY, libraryInfo.getDefault());
+    addPath(consumer, LibraryPathType.SOURCE, libraryInfo.getSources());
+    addPath(consumer, LibraryPathType.DOC, libraryInfo.getJavadoc());
+
+    for (String otherLibraryInfo : libraryInfo.getJarsWithCustomClassifiers()) {
+      addPath(consumer, LibraryPathType.BINARY, otherLibraryInfo);
+    }
+  }
+
+  private static void addPath(
+    @NotNull BiConsumer<LibraryPathType, String> consumer,
+    @NotNull LibraryPathType type,
     @Nullable String path
   ) {
-    if (path == null) {
-      return;
+    if (path != null) {
+      consumer.accept(type, path);
     }
-    path = FileUtil.isAbsolute(path) ? path : executor.getAbsolutePathFromWorkingDir(path);
+  }
 
-    if (new File(path).exists()) {
-      libraryData.addPath(binary, path);
+  @NotNull
+  private static String getAbsolutePath(@NotNull PantsCompileOptionsExecutor executor, @NotNull String path) {
+    return FileUtil.isAbsolute(path) ? path : executor.getAbsolutePathFromWorkingDir(path);
+  }
+
+  private static boolean exists(@NotNull String path) {
+    try {
+      return Files.exists(Paths.get(path));
+    }
+    catch (InvalidPathException e) {
+      return false;
     }
   }
 }
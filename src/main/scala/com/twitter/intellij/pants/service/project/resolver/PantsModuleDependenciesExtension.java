@@ -16,7 +16,8 @@ import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -29,6 +30,7 @@ public class PantsModuleDependenciesExtension implements PantsResolverExtension
     @NotNull Map<String, DataNode<ModuleData>> modules,
     @NotNull Optional<BuildGraph> buildGraph
   ) {
+    final ModuleDependencies moduleDependencies = new ModuleDependencies();
     for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
       final String mainTarget = entry.getKey();
       final TargetInfo targetInfo = entry.getValue();
@@ -40,23 +42,47 @@ public class PantsModuleDependenciesExtension implements PantsResolverExtension
         if (!modules.containsKey(target)) {
           continue;
         }
-        addModuleDependency(moduleDataNode, modules.get(target), true);
+        moduleDependencies.add(moduleDataNode, modules.get(target), true);
       }
     }
   }
 
-  private void addModuleDependency(DataNode<ModuleData> moduleDataNode, DataNode<ModuleData> submoduleDataNode, boolean exported) {
-    final List<ModuleDependencyData> subModuleDeps = PantsUtil.findChildren(submoduleDataNode, ProjectKeys.MODULE_DEPENDENCY);
-    for (ModuleDependencyData dep : subModuleDeps) {
-      if (dep.getTarget().equals(moduleDataNode.getData())) {
+  /**
+   * Module dependencies created so far, so checking for an existing edge doesn't rescan the children of a module.
+   */
+  private static class ModuleDependencies {
+    private final Map<DataNode<ModuleData>, Map<ModuleData, ModuleDependencyData>> myDependencies = new IdentityHashMap<>();
+
+    private void add(DataNode<ModuleData> moduleDataNode, DataNode<ModuleData> submoduleDataNode, boolean exported) {
+      // A module dependency in the opposite direction would make a cycle.
+      if (getDependencies(submoduleDataNode).containsKey(moduleDataNode.getData())) {
+        return;
+      }
+      final Map<ModuleData, ModuleDependencyData> dependencies = getDependencies(moduleDataNode);
+      final ModuleDependencyData existing = dependencies.get(submoduleDataNode.getData());
+      if (existing != null) {
+        existing.setExported(existing.isExported() || exported);
         return;
       }
+      final ModuleDependencyData moduleDependencyData = new ModuleDependencyData(
+        moduleDataNode.getData(),
+        submoduleDataNode.getData()
+      );
+      moduleDependencyData.setExported(exported);
+      moduleDataNode.createChild(ProjectKeys.MODULE_DEPENDENCY, moduleDependencyData);
+      dependencies.put(submoduleDataNode.getData(), moduleDependencyData);
+    }
+
+    @NotNull
+    private Map<ModuleData, ModuleDependencyData> getDependencies(@NotNull DataNode<ModuleData> moduleDataNode) {
+      return myDependencies.computeIfAbsent(moduleDataNode, node -> {
+        // Seeded once from the dependencies other resolvers might have added already.
+        final Map<ModuleData, ModuleDependencyData> result = new HashMap<>();
+        for (ModuleDependencyData dependency : PantsUtil.findChildren(node, ProjectKeys.MODULE_DEPENDENCY)) {
+          result.put(dependency.getTarget(), dependency);
+        }
+        return result;
+      });
     }
-    final ModuleDependencyData moduleDependencyData = new ModuleDependencyData(
-      moduleDataNode.getData(),
-      submoduleDataNode.getData()
-    );
-    moduleDependencyData.setExported(exported);
-    moduleDataNode.createChild(ProjectKeys.MODULE_DEPENDENCY, moduleDependencyData);
   }
 }
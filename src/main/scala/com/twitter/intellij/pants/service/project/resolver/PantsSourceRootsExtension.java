@@ -23,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -57,27 +58,30 @@ public class PantsSourceRootsExtension implements PantsResolverExtension {
     @NotNull Map<String, DataNode<ModuleData>> modules,
     @NotNull Optional<BuildGraph> buildGraph
   ) {
-    for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
-      final String targetAddress = entry.getKey();
-      final TargetInfo targetInfo = entry.getValue();
-      if (!modules.containsKey(targetAddress)) {
-        continue;
+    final List<Map.Entry<String, TargetInfo>> targets = projectInfo.getSortedTargets().stream()
+      .filter(entry -> modules.containsKey(entry.getKey()))
+      .collect(Collectors.toList());
+    final List<List<ContentRootData>> contentRoots =
+      ParallelResolver.map(targets, entry -> createContentRoots(entry.getValue()));
+    for (int i = 0; i < targets.size(); i++) {
+      final DataNode<ModuleData> moduleDataNode = modules.get(targets.get(i).getKey());
+      for (ContentRootData contentRoot : contentRoots.get(i)) {
+        moduleDataNode.createChild(ProjectKeys.CONTENT_ROOT, contentRoot);
       }
-      final DataNode<ModuleData> moduleDataNode = modules.get(targetAddress);
-
-      createContentRoots(moduleDataNode, targetInfo);
     }
   }
 
-  private void createContentRoots(@NotNull DataNode<ModuleData> moduleDataNode, @NotNull final TargetInfo targetInfo) {
+  @NotNull
+  private static List<ContentRootData> createContentRoots(@NotNull final TargetInfo targetInfo) {
     final Set<ContentRoot> roots = targetInfo.getRoots();
     if (roots.isEmpty()) {
-      return;
+      return Collections.emptyList();
     }
 
+    final List<ContentRootData> result = new ArrayList<>();
     for (String baseRoot : findBaseRoots(targetInfo, roots)) {
       final ContentRootData contentRoot = new ContentRootData(PantsConstants.SYSTEM_ID, baseRoot);
-      moduleDataNode.createChild(ProjectKeys.CONTENT_ROOT, contentRoot);
+      result.add(contentRoot);
 
       for (ContentRoot sourceRoot : roots) {
         final String sourceRootPathToAdd = getSourceRootRegardingTargetType(targetInfo, sourceRoot);
@@ -96,10 +100,11 @@ public class PantsSourceRootsExtension implements PantsResolverExtension {
         }
       }
     }
+    return result;
   }
 
   @NotNull
-  private List<String> findBaseRoots(@NotNull final TargetInfo targetInfo, Set<ContentRoot> roots) {
+  private static List<String> findBaseRoots(@NotNull final TargetInfo targetInfo, Set<ContentRoot> roots) {
     Set<String> allRoots = roots.stream()
       .map(root -> getSourceRootRegardingTargetType(targetInfo, root))
       .collect(Collectors.toSet());
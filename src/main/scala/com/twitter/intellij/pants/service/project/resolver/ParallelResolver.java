@@ -0,0 +1,82 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.resolver;
+
+import com.intellij.openapi.externalSystem.model.ExternalSystemException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the per target work of resolver extensions on a bounded fork-join pool.
+ * <p>
+ * `DataNode` trees are not thread safe, so extensions only compute the data of each target in parallel
+ * and attach it to the project tree afterwards on the calling thread, in the original order of the targets.
+ * That keeps the resulting tree identical to a sequential resolve.
+ * <p>
+ * It can be turned off with `-Dpants.resolve.parallel=false`.
+ */
+public final class ParallelResolver {
+  public static final String SYSTEM_PROPERTY_PARALLEL_RESOLVE = "pants.resolve.parallel";
+
+  /**
+   * Below this many targets the hand-off costs more than it saves.
+   */
+  private static final int MIN_PARALLEL_SIZE = 256;
+  private static final int MAX_PARALLELISM = 8;
+
+  private static volatile ForkJoinPool ourPool = null;
+
+  private ParallelResolver() {
+  }
+
+  /**
+   * @return the results of applying the function to every item, in the order of the items.
+   */
+  @NotNull
+  public static <T, R> List<R> map(@NotNull List<T> items, @NotNull Function<T, R> function) {
+    if (items.size() < MIN_PARALLEL_SIZE || !isEnabled()) {
+      final List<R> result = new ArrayList<>(items.size());
+      for (T item : items) {
+        result.add(function.apply(item));
+      }
+      return result;
+    }
+    try {
+      return getPool().submit(() -> items.parallelStream().map(function).collect(Collectors.toList())).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExternalSystemException(e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ExternalSystemException(e.getCause());
+    }
+  }
+
+  private static boolean isEnabled() {
+    return !"false".equals(System.getProperty(SYSTEM_PROPERTY_PARALLEL_RESOLVE));
+  }
+
+  @NotNull
+  private static ForkJoinPool getPool() {
+    if (ourPool == null) {
+      synchronized (ParallelResolver.class) {
+        if (ourPool == null) {
+          final int cores = Runtime.getRuntime().availableProcessors();
+          ourPool = new ForkJoinPool(Math.max(1, Math.min(cores - 1, MAX_PARALLELISM)));
+        }
+      }
+    }
+    return ourPool;
+  }
+}
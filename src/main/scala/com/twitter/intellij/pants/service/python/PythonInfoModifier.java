@@ -27,8 +27,8 @@ public class PythonInfoModifier implements PantsProjectInfoModifierExtension {
     @NotNull PantsCompileOptionsExecutor executor,
     @NotNull Logger log
   ) {
-    TargetInfo sources = new TargetInfo();
-    TargetInfo tests = new TargetInfo();
+    final TargetInfo.Accumulator sourcesAccumulator = new TargetInfo.Accumulator();
+    final TargetInfo.Accumulator testsAccumulator = new TargetInfo.Accumulator();
     final Set<String> pythonTargetNames = ContainerUtilRt.newHashSet();
     for (Map.Entry<String, TargetInfo> entry : projectInfo.getTargets().entrySet()) {
       final String targetName = entry.getKey();
@@ -38,11 +38,13 @@ public class PythonInfoModifier implements PantsProjectInfoModifierExtension {
       }
       pythonTargetNames.add(targetName);
       if (targetInfo.isTest()) {
-        tests = tests.union(targetInfo);
+        testsAccumulator.add(targetInfo);
       } else {
-        sources = sources.union(targetInfo);
+        sourcesAccumulator.add(targetInfo);
       }
     }
+    final TargetInfo sources = sourcesAccumulator.build();
+    final TargetInfo tests = testsAccumulator.build();
     if (sources.isEmpty()) {
       return;
     }
@@ -38,6 +38,10 @@ abstract public class PantsExternalMetricsListenerExtensionTestBase extends OSSP
     public void logIndexingDuration(long milliSeconds) throws Throwable {
     }
 
+    @Override
+    public void logImportStageDuration(String stage, long milliSeconds) throws Throwable {
+    }
+
     @Override
     public void logEvent(String event) {
     }
@@ -56,6 +56,25 @@ public class NoopCompileTest extends OSSPantsIntegrationTest {
     assertPantsCompileExecutesAndSucceeds(pantsCompileProject());
   }
 
+  public void testEditFileOutsideCompiledModuleShouldNoop() throws Throwable {
+    importScalaHello();
+
+    assertPantsCompileExecutesAndSucceeds(pantsCompileModule(ScalaWelcomeProjectData.HELLO_SRC_JAVA_MODULE));
+    // WelSpec belongs to the test module, which the Java module does not depend on.
+    modify("org.pantsbuild.example.hello.welcome.WelSpec");
+    assertPantsCompileNoop(pantsCompileModule(ScalaWelcomeProjectData.HELLO_SRC_JAVA_MODULE));
+  }
+
+  public void testEditFileInTransitiveDependencyShouldOp() throws Throwable {
+    importScalaHello();
+
+    assertPantsCompileExecutesAndSucceeds(pantsCompileModule(ScalaWelcomeProjectData.HELLO_TEST_MODULE));
+    // Greeting belongs to the Java module, which the test module only depends on through the Scala module.
+    modify("org.pantsbuild.example.hello.greet.Greeting");
+    assertPantsCompileExecutesAndSucceeds(pantsCompileModule(ScalaWelcomeProjectData.HELLO_TEST_MODULE));
+    assertPantsCompileNoop(pantsCompileModule(ScalaWelcomeProjectData.HELLO_TEST_MODULE));
+  }
+
   public void testEditDocInProjectShouldOp() throws Throwable {
     // Using a Java target because it is consistent throughout Pants versions.
     doImport("examples/tests/java/org/pantsbuild/example/hello/greet");
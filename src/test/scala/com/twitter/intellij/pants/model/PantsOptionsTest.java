@@ -8,6 +8,7 @@ import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.util.PantsConstants;
 import junit.framework.TestCase;
 
+import java.io.File;
 import java.util.Optional;
 
 
@@ -51,6 +52,18 @@ public class PantsOptionsTest extends BasePlatformTestCase {
     assertTrue( options_a != options_c);
   }
 
+  public void testInvalidateBuildRoot() {
+    PantsOptions options_a = PantsOptions.getPantsOptions("./pants");
+    PantsOptions.invalidate(new File("./pants").getAbsoluteFile().getParentFile());
+    PantsOptions options_b = PantsOptions.getPantsOptions("./pants");
+    // option_b is read again, from the persistent cache this time
+    assertTrue(options_a != options_b);
+    assertEquals(
+      options_a.get(PantsConstants.PANTS_OPTION_PANTS_WORKDIR),
+      options_b.get(PantsConstants.PANTS_OPTION_PANTS_WORKDIR)
+    );
+  }
+
   public void testOptionsException() {
     try {
       PantsOptions.getPantsOptions("some_invalid_pants_path");
@@ -0,0 +1,65 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.externalSystem.model.ExternalSystemException;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.util.PantsUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.Reader;
+import java.util.concurrent.CompletableFuture;
+
+public class PipedExportTest extends TestCase {
+  public void testReadsWhileWriterIsRunning() throws Exception {
+    if (!SystemInfo.isUnix) {
+      return;
+    }
+    final File pipe = PipedExport.createPipe();
+    assertNotNull(pipe);
+    // Writes the output in pieces, the way a slow `pants export` would.
+    final CompletableFuture<ProcessOutput> export =
+      runScript("{ printf '{\"version\": '; sleep 1; printf '\"1.0.9\"}'; } > " + pipe.getPath());
+    try (Reader reader = PipedExport.open(pipe, export, output -> assertEquals(0, output.getExitCode()))) {
+      assertEquals("{\"version\": \"1.0.9\"}", FileUtil.loadTextAndClose(reader));
+    }
+    assertFalse(pipe.exists());
+  }
+
+  public void testFailureBeforeWritingDoesNotBlock() throws Exception {
+    if (!SystemInfo.isUnix) {
+      return;
+    }
+    final File pipe = PipedExport.createPipe();
+    assertNotNull(pipe);
+    final CompletableFuture<ProcessOutput> export = runScript("exit 1");
+    try (Reader reader = PipedExport.open(pipe, export, output -> {
+      if (output.getExitCode() != 0) {
+        throw new ExternalSystemException("export failed");
+      }
+    })) {
+      reader.read();
+      fail("The failed export should have been reported");
+    }
+    catch (ExternalSystemException e) {
+      assertEquals("export failed", e.getMessage());
+    }
+  }
+
+  private static CompletableFuture<ProcessOutput> runScript(String script) {
+    final GeneralCommandLine commandLine = new GeneralCommandLine("sh", "-c", script);
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return PantsUtil.getCmdOutput(commandLine, null);
+      }
+      catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+  }
+}
@@ -0,0 +1,157 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class IncrementalExportTest extends TestCase {
+  private static final String EXPORT_OUTPUT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"libraries\": {},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/a:a\": {\"targets\": [\"src/b:b\"], \"target_type\": \"SOURCE\"},\n" +
+    "    \"src/b:b\": {\"targets\": [\"src/c:c\"], \"target_type\": \"SOURCE\"},\n" +
+    "    \"src/c:c\": {\"target_type\": \"SOURCE\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  private static final List<String> SELECTED_SPECS = Collections.singletonList("src/a:a");
+
+  private File myBuildRoot;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBuildRoot = FileUtil.createTempDirectory("incremental", "export");
+    for (String directory : Arrays.asList("src/a", "src/b", "src/c")) {
+      FileUtil.writeToFile(new File(myBuildRoot, directory + "/BUILD"), "");
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myBuildRoot);
+    super.tearDown();
+  }
+
+  public void testChangedDirectoryAndDirectDependeesAreExported() {
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final Optional<IncrementalExport> export =
+      IncrementalExport.plan(myBuildRoot, info, Collections.singleton("src/b/BUILD"), SELECTED_SPECS);
+    assertTrue(export.isPresent());
+    assertEquals(Arrays.asList("src/a:a", "src/b:"), export.get().getTargetSpecs());
+  }
+
+  public void testDeletedBuildFileOnlyExportsDependees() {
+    FileUtil.delete(new File(myBuildRoot, "src/c/BUILD"));
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final Optional<IncrementalExport> export =
+      IncrementalExport.plan(myBuildRoot, info, Collections.singleton("src/c/BUILD"), SELECTED_SPECS);
+    assertTrue(export.isPresent());
+    assertEquals(Collections.singletonList("src/b:b"), export.get().getTargetSpecs());
+  }
+
+  public void testConfigChangeNeedsFullExport() {
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final Set<String> changedFiles = new HashSet<>(Arrays.asList("src/a/BUILD", "pants.toml"));
+    assertFalse(IncrementalExport.plan(myBuildRoot, info, changedFiles, SELECTED_SPECS).isPresent());
+  }
+
+  public void testBuildFileOutsideImportIsNotExported() throws Exception {
+    FileUtil.writeToFile(new File(myBuildRoot, "other/BUILD"), "");
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final Optional<IncrementalExport> unrelated =
+      IncrementalExport.plan(myBuildRoot, info, Collections.singleton("other/BUILD"), SELECTED_SPECS);
+    assertTrue(unrelated.isPresent());
+    assertEquals(Collections.emptyList(), unrelated.get().getTargetSpecs());
+
+    final Optional<IncrementalExport> export = IncrementalExport.plan(
+      myBuildRoot, info, new HashSet<>(Arrays.asList("other/BUILD", "src/c/BUILD")), SELECTED_SPECS
+    );
+    assertTrue(export.isPresent());
+    assertEquals(Arrays.asList("src/b:b", "src/c:"), export.get().getTargetSpecs());
+  }
+
+  public void testNewDirectoryMatchingSelectedSpecsIsExported() throws Exception {
+    FileUtil.writeToFile(new File(myBuildRoot, "src/d/BUILD"), "");
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final Optional<IncrementalExport> export =
+      IncrementalExport.plan(myBuildRoot, info, Collections.singleton("src/d/BUILD"), Collections.singletonList("src::"));
+    assertTrue(export.isPresent());
+    assertEquals(Collections.singletonList("src/d:"), export.get().getTargetSpecs());
+  }
+
+  public void testMergeDropsDeletedTargets() {
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    final ProjectInfo partial = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {}, \"targets\": {\"src/b:b\": {\"target_type\": \"SOURCE\"}}}"
+    );
+    info.update(partial, Collections.singleton("src/c:c"), target -> false);
+    assertEquals(new HashSet<>(Arrays.asList("src/a:a", "src/b:b")), info.getTargets().keySet());
+    assertTrue(info.getTarget("src/b:b").getTargets().isEmpty());
+  }
+
+  public void testUpdateKeepsTargetRoots() {
+    final ProjectInfo info = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {}, \"targets\": {\n" +
+      "  \"src/b:b\": {\"targets\": [\"src/c:c\"], \"target_type\": \"SOURCE\", \"is_target_root\": false},\n" +
+      "  \"src/c:c\": {\"target_type\": \"SOURCE\", \"is_target_root\": true}\n" +
+      "}}"
+    );
+    // `src/b:` is a spec of the partial export, so it is a target root there while its dependency is not.
+    final ProjectInfo partial = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {}, \"targets\": {\n" +
+      "  \"src/b:b\": {\"targets\": [\"src/c:c\"], \"target_type\": \"SOURCE\", \"is_target_root\": true},\n" +
+      "  \"src/b:new\": {\"target_type\": \"SOURCE\", \"is_target_root\": true},\n" +
+      "  \"src/b:unselected\": {\"target_type\": \"SOURCE\", \"is_target_root\": true},\n" +
+      "  \"src/c:c\": {\"target_type\": \"SOURCE\", \"is_target_root\": false}\n" +
+      "}}"
+    );
+    info.update(partial, Collections.singleton("src/b:b"), "src/b:new"::equals);
+    assertFalse(isTargetRoot(info, "src/b:b"));
+    assertTrue(isTargetRoot(info, "src/b:new"));
+    assertFalse(isTargetRoot(info, "src/b:unselected"));
+    assertTrue(isTargetRoot(info, "src/c:c"));
+  }
+
+  public void testUpdateWithoutTargets() {
+    final ProjectInfo info = ProjectInfo.fromJson(EXPORT_OUTPUT);
+    info.update(ProjectInfo.fromJson("{\"version\": \"1.0.9\", \"libraries\": {}}"), Collections.singleton("src/c:c"), target -> false);
+    assertEquals(new HashSet<>(Arrays.asList("src/a:a", "src/b:b")), info.getTargets().keySet());
+  }
+
+  public void testSpecPath() {
+    assertEquals("src/java/foo", IncrementalExport.getSpecPath("src/java/foo:bar"));
+    assertEquals("", IncrementalExport.getSpecPath("//:root"));
+    assertEquals("//:", IncrementalExport.getDirectorySpec(""));
+  }
+
+  public void testSelectsTarget() {
+    assertTrue(IncrementalExport.selectsTarget("src::", "src/java/foo:bar"));
+    assertTrue(IncrementalExport.selectsTarget("::", "src/java/foo:bar"));
+    assertTrue(IncrementalExport.selectsTarget("src/java/foo:", "src/java/foo:bar"));
+    assertTrue(IncrementalExport.selectsTarget("src/java/foo:bar", "src/java/foo:bar"));
+    assertTrue(IncrementalExport.selectsTarget("src/java/foo", "src/java/foo:foo"));
+    assertFalse(IncrementalExport.selectsTarget("src/java/foo", "src/java/foo:bar"));
+    assertFalse(IncrementalExport.selectsTarget("src/java/foo:", "src/java/foo/baz:baz"));
+    assertFalse(IncrementalExport.selectsTarget("src/j::", "src/java/foo:bar"));
+  }
+
+  private static boolean isTargetRoot(@NotNull ProjectInfo info, @NotNull String targetName) {
+    return info.getTarget(targetName).getAddressInfos().stream().allMatch(TargetAddressInfo::isTargetRoot);
+  }
+}
@@ -0,0 +1,43 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import junit.framework.TestCase;
+
+import java.util.Optional;
+
+public class ProgressiveImportTest extends TestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(ProgressiveImport.SYSTEM_PROPERTY_PROGRESSIVE_IMPORT, "true");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(ProgressiveImport.SYSTEM_PROPERTY_PROGRESSIVE_IMPORT);
+    super.tearDown();
+  }
+
+  public void testFirstResolveImportsFirstLevel() {
+    assertEquals(Optional.of(1), ProgressiveImport.getDepthToResolve("/project", Optional.of(5)));
+    assertEquals(Optional.of(0), ProgressiveImport.getDepthToResolve("/project", Optional.of(0)));
+  }
+
+  public void testWithoutIncrementalImport() {
+    assertEquals(Optional.empty(), ProgressiveImport.getDepthToResolve("/project", Optional.empty()));
+  }
+
+  public void testDisabled() {
+    System.clearProperty(ProgressiveImport.SYSTEM_PROPERTY_PROGRESSIVE_IMPORT);
+    assertEquals(Optional.of(5), ProgressiveImport.getDepthToResolve("/project", Optional.of(5)));
+  }
+
+  public void testLevelsDoubleUpToConfiguredDepth() {
+    assertEquals(1, ProgressiveImport.getNextDepth(0, 5));
+    assertEquals(2, ProgressiveImport.getNextDepth(1, 5));
+    assertEquals(4, ProgressiveImport.getNextDepth(2, 5));
+    assertEquals(5, ProgressiveImport.getNextDepth(4, 5));
+  }
+}
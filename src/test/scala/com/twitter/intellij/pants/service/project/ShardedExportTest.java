@@ -0,0 +1,90 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ShardedExportTest extends TestCase {
+  public void testFewSpecsAreNotSharded() {
+    assertFalse(ShardedExport.plan(specs(60), 4).isPresent());
+    assertFalse(ShardedExport.plan(specs(500), 1).isPresent());
+  }
+
+  public void testSpecsArePartitioned() {
+    final Optional<ShardedExport> export = ShardedExport.plan(specs(250), 4);
+    assertTrue(export.isPresent());
+    final List<List<String>> shards = export.get().getShards();
+    assertEquals(4, shards.size());
+    final List<String> allSpecs = new ArrayList<>();
+    for (List<String> shard : shards) {
+      assertTrue(shard.size() >= 62);
+      allSpecs.addAll(shard);
+    }
+    assertEquals(new HashSet<>(specs(250)), new HashSet<>(allSpecs));
+    assertEquals(250, allSpecs.size());
+  }
+
+  public void testMergeDeduplicatesTargets() {
+    final ProjectInfo first = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {\"org:lib:1\": {\"default\": \"/jars/lib.jar\"}}, \"targets\": {" +
+      "\"src/a:a\": {\"targets\": [\"src/common:common\"], \"target_type\": \"SOURCE\", \"is_target_root\": true}," +
+      "\"src/common:common\": {\"libraries\": [\"org:lib:1\"], \"target_type\": \"SOURCE\", \"is_target_root\": false}}}"
+    );
+    final ProjectInfo second = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {\"org:lib:1\": {\"default\": \"/jars/lib.jar\"}}, \"targets\": {" +
+      "\"src/b:b\": {\"targets\": [\"src/common:common\"], \"target_type\": \"SOURCE\", \"is_target_root\": true}," +
+      "\"src/common:common\": {\"libraries\": [\"org:lib:1\"], \"target_type\": \"SOURCE\", \"is_target_root\": true}}}"
+    );
+    first.merge(second);
+    assertEquals(new HashSet<>(Arrays.asList("src/a:a", "src/b:b", "src/common:common")), first.getTargets().keySet());
+    assertEquals(1, first.getLibraries().size());
+    assertEquals(1, first.getTarget("src/common:common").getAddressInfos().size());
+    assertTrue(first.getTarget("src/common:common").getAddressInfos().iterator().next().isTargetRoot());
+  }
+
+  public void testShardsRunConcurrently() throws Exception {
+    final ShardedExport export = ShardedExport.plan(specs(150), 3).get();
+    final CountDownLatch running = new CountDownLatch(3);
+    final ProjectInfo info = export.run(
+      targetSpecs -> {
+        running.countDown();
+        // Only returns if every shard is running at the same time.
+        try {
+          assertTrue(running.await(10, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return exportOf(targetSpecs);
+      },
+      () -> {}
+    );
+    assertEquals(150, info.getTargets().size());
+  }
+
+  private static ProjectInfo exportOf(List<String> targetSpecs) {
+    final String targets = targetSpecs.stream()
+      .map(spec -> "\"" + spec.replace("::", ":x") + "\": {\"target_type\": \"SOURCE\", \"is_target_root\": true}")
+      .collect(Collectors.joining(","));
+    return ProjectInfo.fromJson("{\"version\": \"1.0.9\", \"libraries\": {}, \"targets\": {" + targets + "}}");
+  }
+
+  private static List<String> specs(int count) {
+    final List<String> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      result.add("src/target" + i + "::");
+    }
+    return result;
+  }
+}
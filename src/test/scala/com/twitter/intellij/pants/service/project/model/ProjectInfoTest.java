@@ -0,0 +1,168 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.common.collect.Sets;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import com.twitter.intellij.pants.service.project.PantsResolver;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+public class ProjectInfoTest extends TestCase {
+  private static final String EXPORT_OUTPUT =
+    "Some log line from pants\n" +
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"libraries\": {\n" +
+    "    \"org.scala-lang:scala-library:2.11.8\": {\"default\": \"/jars/scala-library.jar\", \"sources\": \"/jars/scala-library-sources.jar\"}\n" +
+    "  },\n" +
+    "  \"targets\": {\n" +
+    "    \"src/scala:a\": {\n" +
+    "      \"targets\": [\"src/scala:b\"],\n" +
+    "      \"libraries\": [\"org.scala-lang:scala-library:2.11.8\"],\n" +
+    "      \"roots\": [{\"source_root\": \"/root/src/scala/a\", \"package_prefix\": \"a\"}],\n" +
+    "      \"target_type\": \"SOURCE\",\n" +
+    "      \"pants_target_type\": \"scala_library\",\n" +
+    "      \"globs\": {\"globs\": [\"src/scala/a/*.scala\"]},\n" +
+    "      \"is_target_root\": true,\n" +
+    "      \"is_synthetic\": false,\n" +
+    "      \"transitive\": true,\n" +
+    "      \"platform\": null\n" +
+    "    },\n" +
+    "    \"src/scala:b\": {\"target_type\": \"TEST\", \"is_target_root\": false}\n" +
+    "  },\n" +
+    "  \"available_target_types\": [\"scala_library\", \"junit_tests\"]\n" +
+    "}\n";
+
+  public void testStreamingParse() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(new StringReader(EXPORT_OUTPUT));
+
+    assertEquals("1.0.9", info.getVersion());
+    assertEquals(2, info.getTargets().size());
+    assertEquals(2, info.getAvailableTargetTypes().length);
+    assertEquals("/jars/scala-library.jar", info.getLibraries("org.scala-lang:scala-library:2.11.8").getDefault());
+
+    final TargetInfo a = info.getTarget("src/scala:a");
+    assertNotNull(a);
+    assertEquals(Sets.newHashSet("src/scala:b"), a.getTargets());
+    assertEquals(Sets.newHashSet("org.scala-lang:scala-library:2.11.8"), a.getLibraries());
+    assertEquals(Sets.newHashSet(new ContentRoot("/root/src/scala/a", "a")), a.getRoots());
+    assertTrue(a.isScalaTarget());
+
+    final TargetAddressInfo addressInfo = a.getAddressInfos().iterator().next();
+    assertEquals("src/scala:a", addressInfo.getTargetAddress());
+    assertEquals("scala_library", addressInfo.getInternalPantsTargetType());
+    assertTrue(addressInfo.isTargetRoot());
+
+    final TargetInfo b = info.getTarget("src/scala:b");
+    assertNotNull(b);
+    assertTrue(b.isTest());
+    assertTrue(b.getTargets().isEmpty());
+  }
+
+  public void testAddressesAreShared() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(new StringReader(EXPORT_OUTPUT));
+    final TargetInfo a = info.getTarget("src/scala:a");
+    final String dependency = a.getTargets().iterator().next();
+    final String address = info.getTarget("src/scala:b").getAddressInfos().iterator().next().getTargetAddress();
+    assertSame(dependency, address);
+    for (String key : info.getTargets().keySet()) {
+      if (key.equals(dependency)) {
+        assertSame(dependency, key);
+      }
+    }
+    final String libraryId = a.getLibraries().iterator().next();
+    for (String key : info.getLibraries().keySet()) {
+      assertSame(libraryId, key);
+    }
+  }
+
+  public void testStringAndStreamParsingAgree() throws Exception {
+    final ProjectInfo fromString = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+    final ProjectInfo fromReader = PantsResolver.parseProjectInfoFromJSON(new StringReader(EXPORT_OUTPUT));
+    assertEquals(fromString.getTargets().keySet(), fromReader.getTargets().keySet());
+    assertEquals(fromString.getLibraries(), fromReader.getLibraries());
+  }
+
+  public void testBinaryRoundTrip() throws Exception {
+    final ProjectInfo original = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      ProjectInfoSerializer.write(original, out);
+    }
+    final ProjectInfo restored =
+      ProjectInfoSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(original.getVersion(), restored.getVersion());
+    assertEquals(original.getLibraries(), restored.getLibraries());
+    assertEquals(original.getTargets().keySet(), restored.getTargets().keySet());
+    for (String targetName : original.getTargets().keySet()) {
+      final TargetInfo expected = original.getTarget(targetName);
+      final TargetInfo actual = restored.getTarget(targetName);
+      assertEquals(expected.getTargets(), actual.getTargets());
+      assertEquals(expected.getLibraries(), actual.getLibraries());
+      assertEquals(expected.getRoots(), actual.getRoots());
+      assertEquals(expected.getSourcesType(), actual.getSourcesType());
+      assertEquals(expected.isScalaTarget(), actual.isScalaTarget());
+    }
+  }
+
+  public void testDependeesFollowRenameAndRemove() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+    assertEquals(Sets.newHashSet("src/scala:a"), info.getDependees("src/scala:b"));
+
+    info.renameTarget("src/scala:b", "b");
+    assertEquals(Sets.newHashSet("b"), info.getTarget("src/scala:a").getTargets());
+    assertEquals(Sets.newHashSet("src/scala:a"), info.getDependees("b"));
+    assertTrue(info.getDependees("src/scala:b").isEmpty());
+
+    final TargetInfo c = new TargetInfo(new TargetAddressInfo());
+    info.addTarget("c", c);
+    c.addDependency("b");
+    assertEquals(Sets.newHashSet("src/scala:a", "c"), info.getDependees("b"));
+
+    info.removeTarget("b");
+    assertTrue(info.getTarget("src/scala:a").getTargets().isEmpty());
+    assertTrue(c.getTargets().isEmpty());
+    assertTrue(info.getDependees("b").isEmpty());
+  }
+
+  public void testDependenciesOfRenamedTargetAreIndexed() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+    info.renameTarget("src/scala:b", "b");
+
+    info.addTarget("c", new TargetInfo(new TargetAddressInfo()));
+    info.getTarget("b").addDependency("c");
+    assertEquals(Sets.newHashSet("b"), info.getDependees("c"));
+
+    info.removeTarget("c");
+    assertTrue(info.getTarget("b").getTargets().isEmpty());
+  }
+
+  public void testSortedTargetsAreSharedUntilChanged() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+    final List<Map.Entry<String, TargetInfo>> sorted = info.getSortedTargets();
+    assertSame(sorted, info.getSortedTargets());
+    assertEquals("src/scala:a", sorted.get(0).getKey());
+
+    info.addTarget("src/java:c", new TargetInfo(new TargetAddressInfo()));
+    assertNotSame(sorted, info.getSortedTargets());
+    assertEquals("src/java:c", info.getSortedTargets().get(0).getKey());
+  }
+
+  public void testLibraryLookupFallsBackToOtherVersion() throws Exception {
+    final ProjectInfo info = PantsResolver.parseProjectInfoFromJSON(EXPORT_OUTPUT);
+    assertEquals("/jars/scala-library.jar", info.getLibraries("org.scala-lang:scala-library:2.12.0").getDefault());
+    assertNull(info.getLibraries("org.scala-lang:scala-lib:2.11.8"));
+    assertNull(info.getLibraries("org.scala-lang:scala-library-extra:2.11.8"));
+  }
+}
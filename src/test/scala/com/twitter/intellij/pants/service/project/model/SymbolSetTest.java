@@ -0,0 +1,55 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class SymbolSetTest extends TestCase {
+  public void testIteratesInNameOrder() {
+    final SymbolTable symbols = new SymbolTable();
+    // Give the names ids in another order than their own.
+    symbols.id("c");
+    symbols.id("a");
+    final Set<String> set = new SymbolSet(symbols, Arrays.asList("c", "b", "a", "c"));
+    assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(set));
+
+    assertTrue(set.add("bb"));
+    assertFalse(set.add("a"));
+    assertEquals(Arrays.asList("a", "b", "bb", "c"), new ArrayList<>(set));
+    assertEquals(new TreeSet<>(Arrays.asList("a", "b", "bb", "c")), set);
+  }
+
+  public void testRemove() {
+    final Set<String> set = new SymbolSet(new SymbolTable(), Arrays.asList("a", "b", "c", "d"));
+    assertTrue(set.remove("b"));
+    assertFalse(set.remove("b"));
+    assertFalse(set.remove("unknown"));
+    assertTrue(set.removeAll(Arrays.asList("a", "d")));
+    assertEquals(Collections.singleton("c"), set);
+    assertTrue(set.contains("c"));
+    assertFalse(set.contains("a"));
+
+    final Iterator<String> iterator = set.iterator();
+    iterator.next();
+    iterator.remove();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add("e"));
+    assertEquals(Collections.singleton("e"), set);
+  }
+
+  public void testSymbolsAreShared() {
+    final SymbolTable symbols = new SymbolTable();
+    final Set<String> first = new SymbolSet(symbols, Collections.singleton(new String("a")));
+    final Set<String> second = new SymbolSet(symbols, Collections.singleton(new String("a")));
+    assertSame(first.iterator().next(), second.iterator().next());
+    assertSame(first.iterator().next(), symbols.intern("a"));
+  }
+}
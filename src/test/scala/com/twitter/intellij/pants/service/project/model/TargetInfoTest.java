@@ -9,6 +9,8 @@ import com.twitter.intellij.pants.model.TargetAddressInfo;
 import junit.framework.TestCase;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -44,6 +46,47 @@ public class TargetInfoTest extends TestCase {
     assertEquals(PantsSourceType.SOURCE, info.getSourcesType());
   }
 
+  public void testDerivedPropertiesFollowAddressInfos() {
+    TargetInfo info = createTargetInfoWithTargetAddressInfo("resource");
+    assertEquals(PantsSourceType.RESOURCE, info.getSourcesType());
+    assertFalse(info.isTest());
+
+    info.setAddressInfos(createTargetInfoWithTargetAddressInfo("test").getAddressInfos());
+    assertEquals(PantsSourceType.TEST, info.getSourcesType());
+    assertTrue(info.isTest());
+
+    TargetAddressInfo source = new TargetAddressInfo();
+    source.setTargetType("source");
+    try {
+      info.getAddressInfos().add(source);
+      fail("The address infos should only change through setAddressInfos");
+    }
+    catch (UnsupportedOperationException ignored) {
+    }
+    Set<TargetAddressInfo> addressInfos = new HashSet<>(info.getAddressInfos());
+    addressInfos.add(source);
+    info.setAddressInfos(addressInfos);
+    assertEquals(PantsSourceType.SOURCE, info.getSourcesType());
+  }
+
+  public void testAccumulatorMatchesUnion() {
+    TargetInfo first = createTargetInfoWithTargetAddressInfo("source");
+    first.setTargets(new HashSet<>(Arrays.asList("a", "b")));
+    first.setLibraries(new HashSet<>(Collections.singletonList("lib1")));
+    TargetInfo second = createTargetInfoWithTargetAddressInfo("test");
+    second.setTargets(new HashSet<>(Arrays.asList("b", "c")));
+    second.setExcludes(new HashSet<>(Collections.singletonList("exclude")));
+    TargetInfo third = createTargetInfoWithTargetAddressInfo("resource");
+
+    TargetInfo union = first.union(second).union(third);
+    TargetInfo accumulated = new TargetInfo.Accumulator().add(first).add(second).add(third).build();
+    assertEquals(union.getAddressInfos(), accumulated.getAddressInfos());
+    assertEquals(union.getTargets(), accumulated.getTargets());
+    assertEquals(union.getLibraries(), accumulated.getLibraries());
+    assertEquals(union.getExcludes(), accumulated.getExcludes());
+    assertEquals(union.getRoots(), accumulated.getRoots());
+  }
+
   @VisibleForTesting
   public static TargetInfo createTargetInfoWithTargetAddressInfo(String... types) {
     Set<TargetAddressInfo> targetAddressInfoSet = Arrays.stream(types).map(s -> {
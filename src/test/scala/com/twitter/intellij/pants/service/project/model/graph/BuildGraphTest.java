@@ -149,6 +149,30 @@ public class BuildGraphTest extends TestCase {
     assertEquals(4, new BuildGraph(targets).getNodesUpToLevel(1).size());
   }
 
+  public void testTargetAliasChain() {
+    // a -> b -> c -> d
+    injectTargetInfoWithInternalPantsTargetType(targets, "a", "source", "java_library", IS_TARGET_ROOT, Optional.empty());
+    injectTargetInfoWithInternalPantsTargetType(targets, "b", "source", "target", !IS_TARGET_ROOT, Optional.of("a"));
+    injectTargetInfoWithInternalPantsTargetType(targets, "c", "source", "alias", !IS_TARGET_ROOT, Optional.of("b"));
+    injectTargetInfoWithInternalPantsTargetType(targets, "d", "source", "java_library", !IS_TARGET_ROOT, Optional.of("c"));
+    BuildGraph graph = new BuildGraph(targets);
+    assertEquals(3, graph.getMaxDepth());
+    // 'd' is expanded through both aliases, but the intermediate alias 'c' is only included one level later.
+    assertEquals(Sets.newHashSet("a", "b", "d"), getAddressesByLevel(graph, 1));
+    assertEquals(Sets.newHashSet("a", "b", "c", "d"), getAddressesByLevel(graph, 2));
+  }
+
+  public void testCycle() {
+    // a -> b -> c -> b
+    injectTargetInfo(targets, "a", "source", IS_TARGET_ROOT, Optional.empty());
+    injectTargetInfo(targets, "b", "source", !IS_TARGET_ROOT, Optional.of("a"));
+    injectTargetInfo(targets, "c", "source", !IS_TARGET_ROOT, Optional.of("b"));
+    targets.get("c").addDependency("b");
+    BuildGraph graph = new BuildGraph(targets);
+    assertEquals(2, graph.getMaxDepth());
+    assertEquals(Sets.newHashSet("a", "b"), getAddressesByLevel(graph, 1));
+  }
+
   private void injectTargetInfoWithInternalPantsTargetType(
     Map<String, TargetInfo> targets,
     String targetAddress,
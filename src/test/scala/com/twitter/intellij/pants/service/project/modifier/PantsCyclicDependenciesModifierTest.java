@@ -0,0 +1,95 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.modifier;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.diagnostic.Logger;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ContentRoot;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfoTest;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PantsCyclicDependenciesModifierTest extends TestCase {
+  private Map<String, TargetInfo> targets;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    targets = new HashMap<>();
+  }
+
+  public void testNoCycles() {
+    addTarget("a", "b");
+    addTarget("b", "c");
+    addTarget("c");
+    assertEquals(Collections.emptyList(), PantsCyclicDependenciesModifier.findCycles(targets));
+  }
+
+  public void testLongCycle() {
+    // a -> b -> c -> a, c -> d
+    addTarget("a", "b");
+    addTarget("b", "c");
+    addTarget("c", "a", "d");
+    addTarget("d");
+    assertEquals(
+      Collections.singletonList(Arrays.asList("a", "b", "c")),
+      PantsCyclicDependenciesModifier.findCycles(targets)
+    );
+  }
+
+  public void testSeparateCycles() {
+    // a <-> b -> c <-> d
+    addTarget("a", "b");
+    addTarget("b", "a", "c");
+    addTarget("c", "d");
+    addTarget("d", "c");
+    assertEquals(
+      Sets.newHashSet(Arrays.asList("a", "b"), Arrays.asList("c", "d")),
+      Sets.newHashSet(PantsCyclicDependenciesModifier.findCycles(targets))
+    );
+  }
+
+  public void testModifyCollapsesCycle() {
+    // a -> b -> c -> a, c -> d, e -> b
+    final ProjectInfo projectInfo = ProjectInfo.fromJson(
+      "{\"version\": \"1.0.9\", \"libraries\": {}, \"targets\": {\n" +
+      "  \"src/a:a\": {\"targets\": [\"src/b:b\"], \"roots\": [{\"source_root\": \"/root/src/a\", \"package_prefix\": \"a\"}]},\n" +
+      "  \"src/b:b\": {\"targets\": [\"src/c:c\"], \"roots\": [{\"source_root\": \"/root/src/b\", \"package_prefix\": \"b\"}]},\n" +
+      "  \"src/c:c\": {\"targets\": [\"src/a:a\", \"src/d:d\"], \"libraries\": [\"junit:junit:4.12\"]},\n" +
+      "  \"src/d:d\": {},\n" +
+      "  \"src/e:e\": {\"targets\": [\"src/b:b\"]}\n" +
+      "}}"
+    );
+
+    new PantsCyclicDependenciesModifier().modify(
+      projectInfo, PantsCompileOptionsExecutor.createMock(), Logger.getInstance(PantsCyclicDependenciesModifierTest.class)
+    );
+
+    final String combinedTargetName = "src/a:a_and_b:b_and_c:c";
+    assertEquals(Sets.newHashSet(combinedTargetName, "src/d:d", "src/e:e"), projectInfo.getTargets().keySet());
+    final TargetInfo combined = projectInfo.getTarget(combinedTargetName);
+    assertEquals(
+      Sets.newHashSet(new ContentRoot("/root/src/a", "a"), new ContentRoot("/root/src/b", "b")),
+      combined.getRoots()
+    );
+    assertEquals(Sets.newHashSet("src/d:d"), combined.getTargets());
+    assertEquals(Sets.newHashSet("junit:junit:4.12"), combined.getLibraries());
+    assertEquals(3, combined.getAddressInfos().size());
+    assertEquals(Sets.newHashSet(combinedTargetName), projectInfo.getTarget("src/e:e").getTargets());
+    assertEquals(Sets.newHashSet("src/e:e"), projectInfo.getDependees(combinedTargetName));
+  }
+
+  private void addTarget(String name, String... dependencies) {
+    final TargetInfo info = TargetInfoTest.createTargetInfoWithTargetAddressInfo("source");
+    info.setTargets(Sets.newHashSet(dependencies));
+    targets.put(name, info);
+  }
+}
@@ -0,0 +1,38 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.modifier;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.diagnostic.Logger;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfoTest;
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+
+public class PantsEmptyTargetRemoverTest extends TestCase {
+  public void testChainOfEmptyAggregates() {
+    final ProjectInfo projectInfo = new ProjectInfo();
+    projectInfo.setTargets(new HashMap<>());
+    // source -> aggregate1 -> aggregate2 -> empty
+    projectInfo.addTarget("source", targetWithDependencies(TargetInfoTest.createTargetInfoWithTargetAddressInfo("source"), "aggregate1"));
+    projectInfo.addTarget("aggregate1", targetWithDependencies(new TargetInfo(), "aggregate2"));
+    projectInfo.addTarget("aggregate2", targetWithDependencies(new TargetInfo(), "empty"));
+    projectInfo.addTarget("empty", new TargetInfo());
+
+    new PantsEmptyTargetRemover().modify(
+      projectInfo, PantsCompileOptionsExecutor.createMock(), Logger.getInstance(PantsEmptyTargetRemoverTest.class)
+    );
+
+    assertEquals(Sets.newHashSet("source"), projectInfo.getTargets().keySet());
+    assertTrue(projectInfo.getTarget("source").getTargets().isEmpty());
+  }
+
+  private static TargetInfo targetWithDependencies(TargetInfo info, String... dependencies) {
+    info.setTargets(Sets.newHashSet(dependencies));
+    return info;
+  }
+}
@@ -31,4 +31,17 @@ public class PantsSourceRootCompressorTest extends TestCase {
       ))
     );
   }
+
+  public void testFindAncestorsWithCommonPrefix() {
+    assertEquals(
+      Sets.newHashSet(new File("a/b"), new File("a/b-c"), new File("a/bc")),
+      PantsSourceRootCompressor.findAncestors(Sets.newHashSet(
+        new File("a/b"),
+        new File("a/b-c"),
+        new File("a/b-c/d"),
+        new File("a/bc"),
+        new File("a/b/c/d")
+      ))
+    );
+  }
 }
@@ -0,0 +1,116 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.twitter.intellij.pants.PantsException;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightCacheTest extends TestCase {
+  public void testConcurrentCallersShareComputation() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final SingleFlightCache<String, String> cache = new SingleFlightCache<>(key -> {
+      runs.incrementAndGet();
+      await(release);
+      return key + runs.get();
+    });
+
+    final CompletableFuture<String> first = cache.getAsync("a");
+    final CompletableFuture<String> second = cache.getAsync("a");
+    assertSame(first, second);
+    assertFalse(first.isDone());
+    release.countDown();
+
+    assertEquals("a1", first.get());
+    assertEquals("a1", second.get());
+    assertEquals("a1", cache.get("a"));
+    assertEquals(1, runs.get());
+  }
+
+  public void testFailureIsEvicted() {
+    final AtomicInteger runs = new AtomicInteger();
+    final SingleFlightCache<String, String> cache = new SingleFlightCache<>(key -> {
+      if (runs.incrementAndGet() == 1) {
+        throw new PantsException("Failed");
+      }
+      return key;
+    });
+
+    try {
+      cache.get("a");
+      fail("The failure should have been rethrown");
+    }
+    catch (PantsException e) {
+      assertEquals("Failed", e.getMessage());
+    }
+    assertEquals("a", cache.get("a"));
+    assertEquals(2, runs.get());
+  }
+
+  public void testInvalidateCancelsPendingComputation() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final SingleFlightCache<String, Object> cache = new SingleFlightCache<>(key -> {
+      await(release);
+      return new Object();
+    });
+
+    final CompletableFuture<Object> pending = cache.getAsync("a");
+    cache.clear();
+    release.countDown();
+    try {
+      pending.join();
+      fail("The pending computation should have been cancelled");
+    }
+    catch (CancellationException ignored) {
+    }
+    assertSame(cache.get("a"), cache.get("a"));
+  }
+
+  public void testInvalidateWhileWaitingComputesAgain() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final SingleFlightCache<String, String> cache = new SingleFlightCache<>(key -> {
+      final int run = runs.incrementAndGet();
+      if (run == 1) {
+        started.countDown();
+        await(release);
+      }
+      return key + run;
+    });
+
+    final AtomicReference<Object> result = new AtomicReference<>();
+    final Thread caller = new Thread(() -> {
+      try {
+        result.set(cache.get("a"));
+      }
+      catch (Throwable e) {
+        result.set(e);
+      }
+    });
+    caller.start();
+    started.await();
+    cache.clear();
+    release.countDown();
+    caller.join(10_000);
+
+    assertEquals("a2", result.get());
+    assertEquals(2, runs.get());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}